@@ -0,0 +1,104 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.benchmarks;
+
+import com.google.common.io.ByteStreams;
+import com.torodb.stampede.CliConfig;
+import com.torodb.stampede.CliConfigUtils;
+import com.torodb.stampede.config.model.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long {@link CliConfigUtils#readConfig(CliConfig)} takes to read a configuration
+ * file and a list of parameters.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConfigParsingBenchmark {
+
+  private CliConfig yamlCliConfig;
+  private CliConfig paramsCliConfig;
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @Setup
+  public void setUp() throws Exception {
+    byte[] yaml;
+    try (InputStream is = ConfigParsingBenchmark.class.getResourceAsStream(
+        "/benchmark-config.yml")) {
+      yaml = ByteStreams.toByteArray(is);
+    }
+
+    yamlCliConfig = new CliConfig() {
+      @Override
+      public boolean hasConfFile() {
+        return true;
+      }
+
+      @Override
+      public InputStream getConfInputStream() {
+        return new ByteArrayInputStream(yaml);
+      }
+    };
+
+    paramsCliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        return Arrays.asList(
+            "/replication/syncSource=localhost:27017",
+            "/replication/include={white*: [white*]}",
+            "/replication/exclude={black*: [black*]}",
+            "/backend/pool/connectionPoolSize=50"
+        );
+      }
+    };
+  }
+
+  @Benchmark
+  public Config readYamlConfig() throws Exception {
+    return CliConfigUtils.readConfig(yamlCliConfig);
+  }
+
+  @Benchmark
+  public Config readParamsConfig() throws Exception {
+    return CliConfigUtils.readConfig(paramsCliConfig);
+  }
+
+  @Benchmark
+  public Config readParamsConfigWithoutValidation() throws Exception {
+    return CliConfigUtils.readConfig(paramsCliConfig, false);
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.benchmarks;
+
+import com.torodb.stampede.CliConfig;
+import com.torodb.stampede.CliConfigUtils;
+import com.torodb.stampede.config.model.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to read the configuration for the first time on a new JVM, which is
+ * what each invocation of the command line pays.
+ *
+ * <p>Each fork reads the configuration once, so the result includes the bootstrap of the mappers
+ * and, unless only printing it, of the bean validator.
+ *
+ * <p>On a single core VM with JDK 17 and packaging-utils 0.50.3, printing the configuration took
+ * 2058 &plusmn; 203 ms before it skipped the validation and 1070 &plusmn; 108 ms after it. Reading
+ * the configuration to start Stampede took 2111 &plusmn; 265 ms, as it still validates it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 0)
+@Measurement(iterations = 1)
+@Fork(20)
+public class ConfigStartupBenchmark {
+
+  private final CliConfig cliConfig = new CliConfig() {
+    @Override
+    public List<String> getParams() {
+      return Arrays.asList(
+          "/replication/syncSource=localhost:27017",
+          "/backend/pool/connectionPoolSize=50"
+      );
+    }
+  };
+
+  @Benchmark
+  public Config firstReadConfig() throws Exception {
+    return CliConfigUtils.readConfig(cliConfig);
+  }
+
+  @Benchmark
+  public Config firstReadConfigToPrint() throws Exception {
+    return CliConfigUtils.readConfig(cliConfig, false);
+  }
+}
@@ -0,0 +1,76 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.benchmarks;
+
+import com.torodb.core.logging.DefaultLoggerFactory;
+import com.torodb.stampede.DefaultConsistencyHandler;
+import org.apache.logging.log4j.Logger;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures how long it takes to flush the consistency flag of a shard on an embedded Derby
+ * backend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ConsistencyFlushBenchmark {
+
+  private static final Logger LOGGER = DefaultLoggerFactory.getInstance()
+      .apply(ConsistencyFlushBenchmark.class);
+
+  private DerbyBackend backend;
+  private DefaultConsistencyHandler consistencyHandler;
+  private boolean consistent;
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @Setup
+  public void setUp() {
+    backend = DerbyBackend.start();
+    consistencyHandler = backend.startConsistencyHandler("shard_0");
+  }
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @TearDown
+  public void tearDown() {
+    consistencyHandler.stopAsync();
+    consistencyHandler.awaitTerminated();
+    backend.close();
+  }
+
+  @Benchmark
+  public void flushConsistency() throws Exception {
+    consistent = !consistent;
+    consistencyHandler.setConsistent(LOGGER, consistent);
+  }
+}
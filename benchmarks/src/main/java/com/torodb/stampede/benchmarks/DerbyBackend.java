@@ -0,0 +1,129 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.benchmarks;
+
+import com.google.inject.Guice;
+import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Modules;
+import com.torodb.backend.derby.DerbyDbBackendBundle;
+import com.torodb.backend.derby.driver.DerbyDbBackendConfigBuilder;
+import com.torodb.core.backend.BackendBundle;
+import com.torodb.core.backend.BackendService;
+import com.torodb.core.bundle.BundleConfig;
+import com.torodb.core.bundle.BundleConfigImpl;
+import com.torodb.core.guice.EssentialModule;
+import com.torodb.core.logging.DefaultLoggerFactory;
+import com.torodb.core.retrier.Retrier;
+import com.torodb.core.supervision.SupervisorDecision;
+import com.torodb.stampede.DefaultConsistencyHandler;
+import com.torodb.stampede.VirtualThreads;
+import com.torodb.torod.TorodBundle;
+import com.torodb.torod.impl.sql.SqlTorodBundle;
+import com.torodb.torod.impl.sql.SqlTorodConfig;
+
+import java.time.Clock;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An embedded Derby backend used by the benchmarks that need a backend.
+ */
+class DerbyBackend implements AutoCloseable {
+
+  private final Injector essentialInjector;
+  private final BackendBundle backendBundle;
+
+  private DerbyBackend(Injector essentialInjector, BackendBundle backendBundle) {
+    this.essentialInjector = essentialInjector;
+    this.backendBundle = backendBundle;
+  }
+
+  static DerbyBackend start() {
+    return start(false);
+  }
+
+  /**
+   * @param virtualThreads if true, the backend and the consistency handlers use virtual threads
+   */
+  static DerbyBackend start(boolean virtualThreads) {
+    Module essentialModule = new EssentialModule(
+        DefaultLoggerFactory.getInstance(),
+        () -> false,
+        Clock.systemUTC());
+    if (virtualThreads) {
+      ThreadFactory threadFactory = VirtualThreads.newThreadFactory("torodb-virtual-")
+          .orElseThrow(() -> new IllegalStateException("Virtual threads are not supported"));
+      essentialModule = Modules.override(essentialModule).with(binder ->
+          binder.bind(ThreadFactory.class).toInstance(threadFactory));
+    }
+    Injector essentialInjector = Guice.createInjector(essentialModule);
+    BundleConfig bundleConfig = new BundleConfigImpl(essentialInjector,
+        (supervised, error) -> SupervisorDecision.IGNORE);
+
+    BackendBundle backendBundle = new DerbyDbBackendBundle(
+        new DerbyDbBackendConfigBuilder(bundleConfig).build()
+    );
+    backendBundle.startAsync();
+    backendBundle.awaitRunning();
+
+    return new DerbyBackend(essentialInjector, backendBundle);
+  }
+
+  BackendService getBackendService() {
+    return backendBundle.getExternalInterface().getBackendService();
+  }
+
+  /**
+   * Starts a consistency handler for the given shard.
+   *
+   * <p>It is a {@link DefaultConsistencyHandler}, as the constructors of the sharded one are
+   * package private. Both load and flush their flag the same way, only its key differs, so all the
+   * handlers started on a backend share the same flag.
+   */
+  DefaultConsistencyHandler startConsistencyHandler(String shardId) {
+    DefaultConsistencyHandler consistencyHandler = new DefaultConsistencyHandler(
+        shardId,
+        getBackendService(),
+        essentialInjector.getInstance(Retrier.class),
+        essentialInjector.getInstance(ThreadFactory.class)
+    );
+    consistencyHandler.startAsync();
+    consistencyHandler.awaitRunning();
+    return consistencyHandler;
+  }
+
+  /**
+   * Starts a torod bundle on this backend, that must be stopped before the backend is closed.
+   */
+  TorodBundle startTorod() {
+    TorodBundle torodBundle = new SqlTorodBundle(new SqlTorodConfig(
+        backendBundle,
+        essentialInjector,
+        (supervised, error) -> SupervisorDecision.IGNORE
+    ));
+    torodBundle.startAsync();
+    torodBundle.awaitRunning();
+    return torodBundle;
+  }
+
+  @Override
+  public void close() {
+    backendBundle.stopAsync();
+    backendBundle.awaitTerminated();
+  }
+}
@@ -0,0 +1,146 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.benchmarks;
+
+import com.torodb.kvdocument.values.KvDocument;
+import com.torodb.kvdocument.values.KvInteger;
+import com.torodb.kvdocument.values.KvValue;
+import com.torodb.kvdocument.values.heap.MapKvDocument;
+import com.torodb.kvdocument.values.heap.StringKvString;
+import com.torodb.torod.SchemaOperationExecutor;
+import com.torodb.torod.TorodBundle;
+import com.torodb.torod.TorodServer;
+import com.torodb.torod.WriteDocTransaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures how many documents per second can be inserted through torod write transactions on an
+ * embedded Derby backend, which is the path the replication uses to write on the backend.
+ *
+ * <p>Each thread writes batches of {@value #BATCH_SIZE} documents on its own collection, like
+ * each shard does when several shards are replicated, and commits each batch. The schema of each
+ * collection is prepared before measuring, as the replication does before writing, so only the
+ * inserts are measured. The throughput is given in documents per second. The sampled time is
+ * the time of each batch divided by its size, so its percentiles show the slow commits that the
+ * throughput averages away. Run with {@code -tu us} to read it in microseconds per document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+@Threads(4)
+public class DerbyInsertBenchmark {
+
+  private static final int BATCH_SIZE = 100;
+  private static final String DATABASE = "benchmark";
+
+  private final AtomicInteger nextCollection = new AtomicInteger();
+  private DerbyBackend backend;
+  private TorodBundle torodBundle;
+  private TorodServer torodServer;
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @Setup
+  public void setUp(BenchmarkParams params) throws Exception {
+    backend = DerbyBackend.start();
+    torodBundle = backend.startTorod();
+    torodServer = torodBundle.getExternalInterface().getTorodServer();
+
+    // Schema operations are exclusive, so the collections are prepared one by one
+    for (int i = 0; i < params.getThreads(); i++) {
+      try (SchemaOperationExecutor schemaOperationExecutor = torodServer
+          .openSchemaOperationExecutor(1, TimeUnit.MINUTES)) {
+        schemaOperationExecutor.prepareSchema(DATABASE, getCollection(i), Writer.createBatch(0));
+      }
+    }
+  }
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @TearDown
+  public void tearDown() {
+    torodBundle.stopAsync();
+    torodBundle.awaitTerminated();
+    backend.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH_SIZE)
+  public void insert(Writer writer) throws Exception {
+    List<KvDocument> batch = writer.nextBatch();
+    try (WriteDocTransaction transaction = torodServer.openWriteTransaction(1, TimeUnit.MINUTES)) {
+      transaction.insert(DATABASE, writer.collection, batch.stream());
+      transaction.commit();
+    }
+  }
+
+  private static String getCollection(int index) {
+    return "shard_" + index;
+  }
+
+  @State(Scope.Thread)
+  public static class Writer {
+
+    private String collection;
+    private int nextId;
+
+    @SuppressWarnings("checkstyle:JavadocMethod")
+    @Setup
+    public void setUp(DerbyInsertBenchmark benchmark) {
+      collection = getCollection(benchmark.nextCollection.getAndIncrement());
+    }
+
+    private List<KvDocument> nextBatch() {
+      List<KvDocument> batch = createBatch(nextId);
+      nextId += BATCH_SIZE;
+      return batch;
+    }
+
+    private static List<KvDocument> createBatch(int firstId) {
+      List<KvDocument> batch = new ArrayList<>(BATCH_SIZE);
+      for (int id = firstId; id < firstId + BATCH_SIZE; id++) {
+        LinkedHashMap<String, KvValue<?>> values = new LinkedHashMap<>();
+        values.put("_id", KvInteger.of(id));
+        values.put("name", new StringKvString("document " + id));
+        values.put("value", KvInteger.of(id % 1000));
+        batch.add(new MapKvDocument(values));
+      }
+      return batch;
+    }
+  }
+}
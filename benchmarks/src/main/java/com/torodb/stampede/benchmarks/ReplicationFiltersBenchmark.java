@@ -0,0 +1,96 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.benchmarks;
+
+import com.torodb.mongodb.filters.DatabaseFilter;
+import com.torodb.mongodb.filters.NamespaceFilter;
+import com.torodb.mongodb.repl.filters.ReplicationFilters;
+import com.torodb.packaging.util.ReplicationFiltersFactory;
+import com.torodb.stampede.CliConfig;
+import com.torodb.stampede.CliConfigUtils;
+import com.torodb.stampede.config.model.Config;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the matching of namespaces against the replication filters, which is done for each
+ * replicated oplog operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReplicationFiltersBenchmark {
+
+  private static final String[] DATABASES = {"whitedb", "blackdb", "otherdb", "admin"};
+  private static final String[] COLLECTIONS = {"whitecol", "blackcol", "othercol", "system.js"};
+
+  private DatabaseFilter databaseFilter;
+  private NamespaceFilter namespaceFilter;
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @Setup
+  public void setUp() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        return Arrays.asList(
+            "/replication/include={white*: [white*], other*: [other*]}",
+            "/replication/exclude={black*: [black*], white*: [whiteblack*]}"
+        );
+      }
+    };
+    Config config = CliConfigUtils.readConfig(cliConfig);
+    ReplicationFilters replicationFilters = ReplicationFiltersFactory.getReplicationFilters(
+        config.getReplication());
+
+    databaseFilter = replicationFilters.getDatabaseFilter();
+    namespaceFilter = replicationFilters.getNamespaceFilter();
+  }
+
+  @Benchmark
+  public void filterDatabase(Blackhole blackhole) {
+    for (String database : DATABASES) {
+      blackhole.consume(databaseFilter.filter(database));
+    }
+  }
+
+  @Benchmark
+  public void filterCollection(Blackhole blackhole) {
+    for (String database : DATABASES) {
+      for (String collection : COLLECTIONS) {
+        blackhole.consume(namespaceFilter.filter(database, collection));
+      }
+    }
+  }
+}
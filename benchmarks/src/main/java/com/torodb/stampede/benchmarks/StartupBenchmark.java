@@ -0,0 +1,72 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.benchmarks;
+
+import com.torodb.stampede.DefaultConsistencyHandler;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the startup of the backend and of the consistency handlers of N shards, the steps
+ * that StampedeService executes before replication starts.
+ *
+ * <p>The replication itself is not started, as it requires a MongoDB sync source. Only platform
+ * threads are measured by default. On Java 21 or later, run with
+ * {@code -p threads=platform,virtual} to compare them with virtual threads. Adding
+ * {@code -prof gc} reports the memory allocated by each mode.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class StartupBenchmark {
+
+  @Param({"1", "4", "16", "64"})
+  private int shards;
+
+  @Param({"platform"})
+  private String threads;
+
+  @Benchmark
+  public void startup() {
+    try (DerbyBackend backend = DerbyBackend.start(threads.equals("virtual"))) {
+      List<DefaultConsistencyHandler> consistencyHandlers = new ArrayList<>(shards);
+      for (int i = 0; i < shards; i++) {
+        consistencyHandlers.add(backend.startConsistencyHandler("shard_" + i));
+      }
+      for (DefaultConsistencyHandler consistencyHandler : consistencyHandlers) {
+        consistencyHandler.stopAsync();
+        consistencyHandler.awaitTerminated();
+      }
+    }
+  }
+}
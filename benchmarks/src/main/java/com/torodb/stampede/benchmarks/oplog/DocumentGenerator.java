@@ -0,0 +1,112 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.benchmarks.oplog;
+
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Generates random documents that follow a fixed number of shapes.
+ *
+ * <p>A shape defines the names and types of the fields of a document. Documents of the same shape
+ * are mapped to the same relational tables, so the number of shapes controls how much new
+ * relational metadata is created by the replication.
+ */
+@NotThreadSafe
+public class DocumentGenerator {
+
+  private static final int TYPES = 5;
+
+  private final Random random;
+  private final int shapes;
+  private final int fields;
+  private final int depth;
+  private final int arraySize;
+
+  public DocumentGenerator(Random random, int shapes, int fields, int depth, int arraySize) {
+    this.random = random;
+    this.shapes = Math.max(1, shapes);
+    this.fields = fields;
+    this.depth = depth;
+    this.arraySize = arraySize;
+  }
+
+  /**
+   * Returns a new document with the given id and a random shape.
+   */
+  public Document generate(Object id) {
+    int shape = random.nextInt(shapes);
+    Document doc = generateSubdocument(shape, depth);
+    doc.put("_id", id);
+    return doc;
+  }
+
+  /**
+   * Returns the name and a new value of a random top level field of the given shape.
+   */
+  public Document generateUpdate() {
+    int shape = random.nextInt(shapes);
+    int field = random.nextInt(Math.max(1, fields));
+    return new Document(fieldName(shape, field), generateScalar(fieldType(shape, field)));
+  }
+
+  private Document generateSubdocument(int shape, int remainingDepth) {
+    Document doc = new Document();
+    for (int field = 0; field < fields; field++) {
+      doc.put(fieldName(shape, field), generateScalar(fieldType(shape, field)));
+    }
+    if (remainingDepth > 0) {
+      doc.put("sub" + shape, generateSubdocument(shape, remainingDepth - 1));
+
+      List<Object> array = new ArrayList<>(arraySize);
+      for (int i = 0; i < arraySize; i++) {
+        array.add(generateSubdocument(shape, remainingDepth - 1));
+      }
+      doc.put("arr" + shape, array);
+    }
+    return doc;
+  }
+
+  private String fieldName(int shape, int field) {
+    return "f" + field + "_" + fieldType(shape, field);
+  }
+
+  private int fieldType(int shape, int field) {
+    return (shape + field) % TYPES;
+  }
+
+  private Object generateScalar(int type) {
+    switch (type) {
+      case 0:
+        return random.nextInt();
+      case 1:
+        return random.nextLong();
+      case 2:
+        return random.nextDouble();
+      case 3:
+        return random.nextBoolean();
+      default:
+        return Long.toHexString(random.nextLong());
+    }
+  }
+}
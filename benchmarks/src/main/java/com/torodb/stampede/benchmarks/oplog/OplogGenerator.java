@@ -0,0 +1,162 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.benchmarks.oplog;
+
+import com.beust.jcommander.JCommander;
+import com.google.common.base.Preconditions;
+import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.RateLimiter;
+import com.mongodb.MongoClient;
+import com.mongodb.MongoClientURI;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.MongoDatabase;
+import com.mongodb.client.model.Filters;
+import org.bson.Document;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a repeatable workload of inserts, updates and deletes on a local MongoDB replica set,
+ * so its oplog can be used as the sync source of ToroDB Stampede on load and soak tests without
+ * pointing them to a production MongoDB.
+ *
+ * <p>Documents are written on the {@code col<N>} collections of the configured database and each
+ * collection keeps its own sequence of ids, so updates and deletes always target a document that
+ * exists. For that reason the collections must be empty, or be dropped with {@code --drop}.
+ */
+public class OplogGenerator {
+
+  private final OplogGeneratorConfig config;
+  private final Random random;
+  private final DocumentGenerator documentGenerator;
+  private final long[] nextIds;
+  private final long[] firstIds;
+  private long inserts;
+  private long updates;
+  private long deletes;
+
+  /**
+   * @throws IllegalArgumentException if there are no collections, the rate is not positive, or a
+   *                                  ratio is negative or all of them are zero
+   */
+  public OplogGenerator(OplogGeneratorConfig config) {
+    Preconditions.checkArgument(config.getCollections() > 0,
+        "The number of collections must be greater than zero");
+    Preconditions.checkArgument(config.getRate() > 0, "The rate must be greater than zero");
+    Preconditions.checkArgument(config.getInsertRatio() >= 0 && config.getUpdateRatio() >= 0
+        && config.getDeleteRatio() >= 0, "Operation ratios can not be negative");
+    Preconditions.checkArgument(
+        config.getInsertRatio() + config.getUpdateRatio() + config.getDeleteRatio() > 0,
+        "At least one operation ratio must be greater than zero");
+    this.config = config;
+    this.random = new Random(config.getSeed());
+    this.documentGenerator = new DocumentGenerator(random, config.getShapes(),
+        config.getFields(), config.getDepth(), config.getArraySize());
+    this.nextIds = new long[config.getCollections()];
+    this.firstIds = new long[config.getCollections()];
+  }
+
+  /**
+   * Runs the generator with the given command line options.
+   */
+  public static void main(String[] args) {
+    OplogGeneratorConfig config = new OplogGeneratorConfig();
+    JCommander jCommander = new JCommander(config, args);
+    if (config.isHelp()) {
+      jCommander.usage();
+      return;
+    }
+
+    OplogGenerator generator;
+    try {
+      generator = new OplogGenerator(config);
+    } catch (IllegalArgumentException ex) {
+      System.err.println(ex.getMessage());
+      jCommander.usage();
+      System.exit(1);
+      return;
+    }
+
+    try (MongoClient client = new MongoClient(new MongoClientURI(config.getUri()))) {
+      generator.run(client.getDatabase(config.getDatabase()));
+    }
+  }
+
+  /**
+   * Generates the configured number of operations on the given database.
+   *
+   * @throws IllegalStateException if a target collection contains documents and the generator
+   *                               is not configured to drop them
+   */
+  public void run(MongoDatabase database) {
+    List<MongoCollection<Document>> collections = new ArrayList<>(config.getCollections());
+    for (int i = 0; i < config.getCollections(); i++) {
+      MongoCollection<Document> collection = database.getCollection("col" + i);
+      if (config.isDrop()) {
+        System.err.println("WARNING: Dropping collection " + collection.getNamespace());
+        collection.drop();
+      } else if (collection.count() > 0) {
+        throw new IllegalStateException("Collection " + collection.getNamespace() + " is not "
+            + "empty. Use --drop to drop it before the workload is generated");
+      }
+      collections.add(collection);
+    }
+
+    int totalRatio = config.getInsertRatio() + config.getUpdateRatio() + config.getDeleteRatio();
+    RateLimiter rateLimiter = RateLimiter.create(config.getRate());
+    Stopwatch stopwatch = Stopwatch.createStarted();
+
+    for (long op = 0; op < config.getOperations(); op++) {
+      rateLimiter.acquire();
+
+      int colIndex = random.nextInt(collections.size());
+      MongoCollection<Document> collection = collections.get(colIndex);
+      int dice = random.nextInt(totalRatio);
+      boolean empty = nextIds[colIndex] == firstIds[colIndex];
+
+      if (dice < config.getInsertRatio() || empty) {
+        collection.insertOne(documentGenerator.generate(nextIds[colIndex]++));
+        inserts++;
+      } else if (dice < config.getInsertRatio() + config.getUpdateRatio()) {
+        long id = firstIds[colIndex]
+            + (long) (random.nextDouble() * (nextIds[colIndex] - firstIds[colIndex]));
+        collection.updateOne(Filters.eq("_id", id),
+            new Document("$set", documentGenerator.generateUpdate()));
+        updates++;
+      } else {
+        collection.deleteOne(Filters.eq("_id", firstIds[colIndex]++));
+        deletes++;
+      }
+
+      if ((op + 1) % 10000 == 0) {
+        report(op + 1, stopwatch);
+      }
+    }
+    report(config.getOperations(), stopwatch);
+  }
+
+  private void report(long operations, Stopwatch stopwatch) {
+    long elapsedMillis = Math.max(1, stopwatch.elapsed(TimeUnit.MILLISECONDS));
+    System.out.println(String.format("%d operations (%d inserts, %d updates, %d deletes) in %d ms,"
+        + " %.1f ops/sec", operations, inserts, updates, deletes, elapsedMillis,
+        operations * 1000.0 / elapsedMillis));
+  }
+}
@@ -0,0 +1,120 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.benchmarks.oplog;
+
+import com.beust.jcommander.Parameter;
+
+/**
+ * Command line options of {@link OplogGenerator}.
+ */
+public class OplogGeneratorConfig {
+
+  @Parameter(names = {"-h", "--help"}, help = true, description = "Prints this help")
+  private boolean help = false;
+  @Parameter(names = {"--uri"}, description = "MongoDB connection string of the local replica "
+      + "set used as the sync source of ToroDB Stampede")
+  private String uri = "mongodb://localhost:27017/?replicaSet=rs1";
+  @Parameter(names = {"--database"}, description = "Database where documents are written")
+  private String database = "stampede_load";
+  @Parameter(names = {"--drop"}, description = "Drops the target collections before the "
+      + "workload is generated. Without it, the generator fails if they contain documents")
+  private boolean drop = false;
+  @Parameter(names = {"--collections"}, description = "Number of collections")
+  private int collections = 4;
+  @Parameter(names = {"--rate"}, description = "Operations per second")
+  private double rate = 1000;
+  @Parameter(names = {"--operations"}, description = "Number of operations to generate")
+  private long operations = 100000;
+  @Parameter(names = {"--insert-ratio"}, description = "Weight of inserts")
+  private int insertRatio = 70;
+  @Parameter(names = {"--update-ratio"}, description = "Weight of updates")
+  private int updateRatio = 20;
+  @Parameter(names = {"--delete-ratio"}, description = "Weight of deletes")
+  private int deleteRatio = 10;
+  @Parameter(names = {"--shapes"}, description = "Number of different document shapes")
+  private int shapes = 10;
+  @Parameter(names = {"--fields"}, description = "Number of fields of each subdocument")
+  private int fields = 10;
+  @Parameter(names = {"--depth"}, description = "Nesting depth of the documents")
+  private int depth = 2;
+  @Parameter(names = {"--array-size"}, description = "Number of elements of the arrays")
+  private int arraySize = 5;
+  @Parameter(names = {"--seed"}, description = "Seed used to generate the workload, the same "
+      + "seed generates the same operations")
+  private long seed = 0;
+
+  public boolean isHelp() {
+    return help;
+  }
+
+  public String getUri() {
+    return uri;
+  }
+
+  public String getDatabase() {
+    return database;
+  }
+
+  public boolean isDrop() {
+    return drop;
+  }
+
+  public int getCollections() {
+    return collections;
+  }
+
+  public double getRate() {
+    return rate;
+  }
+
+  public long getOperations() {
+    return operations;
+  }
+
+  public int getInsertRatio() {
+    return insertRatio;
+  }
+
+  public int getUpdateRatio() {
+    return updateRatio;
+  }
+
+  public int getDeleteRatio() {
+    return deleteRatio;
+  }
+
+  public int getShapes() {
+    return shapes;
+  }
+
+  public int getFields() {
+    return fields;
+  }
+
+  public int getDepth() {
+    return depth;
+  }
+
+  public int getArraySize() {
+    return arraySize;
+  }
+
+  public long getSeed() {
+    return seed;
+  }
+}
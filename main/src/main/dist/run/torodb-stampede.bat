@@ -84,10 +84,14 @@ if NOT "%ENDORSED_DIR%" == "" set CLASSPATH="%BASEDIR%"\%ENDORSED_DIR%\*;%CLASSP
 
 if NOT "%CLASSPATH_PREFIX%" == "" set CLASSPATH=%CLASSPATH_PREFIX%;%CLASSPATH%
 
+set CDS_OPTS=
+if "%TORODB_CDS_ARCHIVE%"=="" set TORODB_CDS_ARCHIVE=%LIBDIR%\@{assembler.name}.jsa
+if NOT "%TORODB_CDS%"=="false" if EXIST "%TORODB_CDS_ARCHIVE%" set CDS_OPTS=-XX:+UnlockDiagnosticVMOptions -Xshare:auto -XX:SharedArchiveFile="%TORODB_CDS_ARCHIVE%"
+
 @REM Reaching here means variables are defined and arguments have been captured
 :endInit
 
-%JAVACMD% %JAVA_OPTS%  -cp %CLASSPATH% @{assembler.mainClass} %TOROCONFIG_OPTS% %CMD_LINE_ARGS%
+%JAVACMD% %CDS_OPTS% %JAVA_OPTS%  -cp %CLASSPATH% @{assembler.mainClass} %TOROCONFIG_OPTS% %CMD_LINE_ARGS%
 if %ERRORLEVEL% NEQ 0 goto error
 goto end
 
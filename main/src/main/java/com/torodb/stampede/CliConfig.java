@@ -172,6 +172,14 @@ public class CliConfig {
         && !printParams.isEmpty();
   }
 
+  /**
+   * Returns true if the configuration is only going to be printed, without starting ToroDB
+   * Stampede.
+   */
+  public boolean isPrintOnly() {
+    return isPrintConfig() || isPrintXmlConfig() || hasPrintParams();
+  }
+
   public List<String> getPrintParamPaths() {
     return printParams;
   }
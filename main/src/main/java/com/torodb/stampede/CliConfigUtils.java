@@ -44,27 +44,39 @@ public class CliConfigUtils {
   public static Config readConfig(CliConfig cliConfig) throws FileNotFoundException,
       JsonProcessingException,
       IOException, JsonParseException, IllegalArgumentException, Exception {
+    return readConfig(cliConfig, true);
+  }
+
+  /**
+   * Reads the configuration, validating it only if {@code validate} is true.
+   *
+   * <p>Bootstrapping the bean validator is one of the slowest steps of reading the configuration,
+   * so modes that only print the configuration can skip it.
+   */
+  public static Config readConfig(CliConfig cliConfig, boolean validate)
+      throws FileNotFoundException, JsonProcessingException,
+      IOException, JsonParseException, IllegalArgumentException, Exception {
     try {
-      return uncatchedReadConfig(cliConfig);
+      return uncatchedReadConfig(cliConfig, validate);
     } catch (JsonMappingException jsonMappingException) {
       throw ConfigUtils.transformJsonMappingException(jsonMappingException);
     }
   }
 
-  private static Config uncatchedReadConfig(final CliConfig cliConfig) throws Exception {
-    ObjectMapper objectMapper = ConfigUtils.mapper(true);
+  private static Config uncatchedReadConfig(final CliConfig cliConfig, boolean validate)
+      throws Exception {
+    ObjectMapper objectMapper = Mappers.OBJECT_MAPPER;
 
-    Config defaultConfig = new Config();
-    ObjectNode configNode = (ObjectNode) objectMapper.valueToTree(defaultConfig);
+    ObjectNode configNode = Mappers.DEFAULT_CONFIG_NODE.deepCopy();
 
     if (cliConfig.hasConfFile() || cliConfig.hasXmlConfFile()) {
       ObjectMapper mapper = null;
       InputStream inputStream = null;
       if (cliConfig.hasConfFile()) {
-        mapper = ConfigUtils.yamlMapper(true);
+        mapper = YamlMapper.INSTANCE;
         inputStream = cliConfig.getConfInputStream();
       } else if (cliConfig.hasXmlConfFile()) {
-        mapper = ConfigUtils.xmlMapper(true);
+        mapper = XmlMapper.INSTANCE;
         inputStream = cliConfig.getXmlConfInputStream();
       }
 
@@ -82,7 +94,7 @@ public class CliConfigUtils {
     }
 
     if (cliConfig.getParams() != null) {
-      YAMLMapper yamlMapper = ConfigUtils.yamlMapper(true);
+      YAMLMapper yamlMapper = YamlMapper.INSTANCE;
       for (String paramPathValue : cliConfig.getParams()) {
         int paramPathValueSeparatorIndex = paramPathValue.indexOf('=');
         String pathAndProp = paramPathValue.substring(0, paramPathValueSeparatorIndex);
@@ -101,8 +113,32 @@ public class CliConfigUtils {
 
     Config config = objectMapper.treeToValue(configNode, Config.class);
 
-    validateBean(config);
+    if (validate) {
+      validateBean(config);
+    }
 
     return config;
   }
+
+  /*
+   * Mappers are expensive to create and thread safe once configured, so they are created once.
+   * Each one is on its own holder class to only create the ones that are used.
+   */
+
+  private static class Mappers {
+
+    private static final ObjectMapper OBJECT_MAPPER = ConfigUtils.mapper(true);
+    private static final ObjectNode DEFAULT_CONFIG_NODE =
+        (ObjectNode) OBJECT_MAPPER.valueToTree(new Config());
+  }
+
+  private static class YamlMapper {
+
+    private static final YAMLMapper INSTANCE = ConfigUtils.yamlMapper(true);
+  }
+
+  private static class XmlMapper {
+
+    private static final ObjectMapper INSTANCE = ConfigUtils.xmlMapper(true);
+  }
 }
@@ -26,18 +26,21 @@ import com.google.common.base.Charsets;
 import com.google.common.base.Throwables;
 import com.google.common.collect.ImmutableList;
 import com.google.common.net.HostAndPort;
-import com.google.common.util.concurrent.Service;
 import com.google.inject.CreationException;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
+import com.google.inject.Module;
+import com.google.inject.util.Modules;
 import com.torodb.core.BuildProperties;
 import com.torodb.core.backend.BackendBundle;
 import com.torodb.core.bundle.BundleConfig;
 import com.torodb.core.exceptions.SystemException;
+import com.torodb.core.guice.Essential;
 import com.torodb.core.guice.EssentialModule;
 import com.torodb.core.logging.ComponentLoggerFactory;
 import com.torodb.core.logging.LoggerFactory;
 import com.torodb.core.metrics.MetricsConfig;
+import com.torodb.core.metrics.ToroMetricRegistry;
 import com.torodb.mongodb.core.DefaultBuildProperties;
 import com.torodb.mongodb.repl.ConsistencyHandler;
 import com.torodb.mongodb.repl.filters.ReplicationFilters;
@@ -58,26 +61,47 @@ import com.torodb.packaging.util.MongoClientConfigurationPropertiesFactory;
 import com.torodb.packaging.util.ReplicationFiltersFactory;
 import com.torodb.stampede.config.model.Config;
 import com.torodb.stampede.config.model.backend.Backend;
+import com.torodb.stampede.config.model.logging.AsyncLogging;
+import com.torodb.stampede.config.model.logging.RateLimit;
+import com.torodb.stampede.config.model.logging.Tracing;
+import com.torodb.stampede.config.model.metrics.MetricsEndpoint;
 import com.torodb.stampede.config.model.mongo.replication.Replication;
 import com.torodb.stampede.config.model.mongo.replication.ShardReplication;
+import com.torodb.stampede.config.model.threads.Threads;
+import com.torodb.stampede.logging.AsyncLoggers;
+import com.torodb.stampede.logging.LogLevels;
+import com.torodb.stampede.logging.RepeatedMessages;
+import com.torodb.stampede.metrics.PrometheusEndpoint;
+import com.torodb.stampede.metrics.StampedeMetrics;
+import com.torodb.stampede.threads.ThreadPoolsModule;
+import com.torodb.stampede.trace.StampedeTracer;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.lang.Thread.UncaughtExceptionHandler;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.file.Paths;
 import java.time.Clock;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Optional;
 import java.util.PropertyResourceBundle;
 import java.util.ResourceBundle;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ThreadFactory;
 import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import javax.management.JMException;
+import javax.management.ObjectName;
+
 /**
  * ToroDB Stampede entry point.
  */
@@ -118,7 +142,8 @@ public class Main {
 
       cliConfig.addParams();
 
-      final Config config = CliConfigUtils.readConfig(cliConfig);
+      // Printed configurations are not validated, they will be when ToroDB Stampede is started
+      final Config config = CliConfigUtils.readConfig(cliConfig, !cliConfig.isPrintOnly());
 
       if (cliConfig.isPrintConfig()) {
         ConfigUtils.printYamlConfig(config, console);
@@ -264,10 +289,41 @@ public class Main {
           }
         });
 
-        Service stampedeService = new StampedeService(createStampedeConfig(config));
+        StampedeConfig stampedeConfig = createStampedeConfig(config);
+        StampedeService stampedeService = new StampedeService(stampedeConfig);
+
+        ReplicationFiltersReloader filtersReloader = createFiltersReloader(
+            cliConfig, config, stampedeService);
+        LogLevels logLevels = createLogLevels(config, stampedeConfig);
+
+        RepeatedMessages repeatedMessages = null;
+        RateLimit rateLimit = config.getLogging().getRateLimit();
+        if (rateLimit.getEnabled()) {
+          repeatedMessages = new RepeatedMessages(rateLimit.getLoggers(), rateLimit.getBurst(),
+              rateLimit.getInterval(), stampedeConfig.getMetrics().getRegistry(),
+              stampedeConfig.getThreadFactory(), LOGGER_FACTORY);
+          repeatedMessages.start();
+        }
+
+        PrometheusEndpoint metricsEndpoint = null;
+        if (config.getMetricsEndpoint().getEnabled()) {
+          metricsEndpoint = createMetricsEndpoint(config.getMetricsEndpoint(), stampedeConfig);
+          metricsEndpoint.startAsync();
+          metricsEndpoint.awaitRunning();
+        }
 
         stampedeService.startAsync();
+        filtersReloader.startAsync();
         stampedeService.awaitTerminated();
+        filtersReloader.stopAsync();
+        stampedeConfig.getThreadPools().close();
+        logLevels.close();
+        if (repeatedMessages != null) {
+          repeatedMessages.close();
+        }
+        if (metricsEndpoint != null) {
+          metricsEndpoint.stopAsync();
+        }
 
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
           stampedeService.stopAsync();
@@ -296,27 +352,39 @@ public class Main {
   }
 
   private static StampedeConfig createStampedeConfig(Config config) {
-    Clock clock = Clock.systemDefaultZone();
-
-    MetricsConfig metricsConfig = config::getMetricsEnabled;
     Backend backendConfig = config.getBackend();
-    Replication replicationConfig = config.getReplication();
-
-    Injector essentialInjector = Guice.createInjector(new EssentialModule(
-        new ComponentLoggerFactory("LIFECYCLE"),
-        metricsConfig,
-        clock)
-    );
-    
     Function<BundleConfig, BackendBundle> backendBundleGenerator = generalConfig ->
         BundleFactory.createBackendBundle(
             backendConfig,
             generalConfig
         );
-    
+
+    return createStampedeConfig(config, backendBundleGenerator);
+  }
+
+  /**
+   * Creates the configuration of ToroDB Stampede, whose backend bundle is created by the given
+   * generator instead of the one of the configured backend.
+   */
+  static StampedeConfig createStampedeConfig(Config config,
+      Function<BundleConfig, BackendBundle> backendBundleGenerator) {
+    Clock clock = Clock.systemDefaultZone();
+
+    MetricsConfig metricsConfig = config::getMetricsEnabled;
+    Replication replicationConfig = config.getReplication();
+
+    StampedeMetrics metrics = new StampedeMetrics(metricsConfig);
+    Injector essentialInjector = Guice.createInjector(
+        createEssentialModule(config.getThreads(), metrics, metricsConfig, clock),
+        new ThreadPoolsModule(metrics.getRegistry())
+    );
+
     ReplicationFilters replFilters = ReplicationFiltersFactory.getReplicationFilters(
         config.getReplication());
 
+    StampedeTracer tracer = createTracer(config.getLogging().getTracing(),
+        essentialInjector.getInstance(ThreadFactory.class));
+
     if (config.getReplication().isShardingReplication()) {
       return StampedeConfig.createShardingConfig(
           essentialInjector,
@@ -324,7 +392,9 @@ public class Main {
           replFilters,
           createShardConfigBuilders(replicationConfig),
           LOGGER_FACTORY,
-          config.getOffHeapBuffer()
+          config.getOffHeapBuffer(),
+          metrics,
+          tracer
       );
     } else {
       return StampedeConfig.createUnshardedConfig(
@@ -333,12 +403,88 @@ public class Main {
           replFilters,
           createUnshardedShardBuilder(replicationConfig),
           LOGGER_FACTORY,
-          config.getOffHeapBuffer()
+          config.getOffHeapBuffer(),
+          metrics,
+          tracer
       );
     }
   }
 
-  private static void configureLogger(CliConfig cliConfig, Config config) {
+  private static Module createEssentialModule(Threads threads, StampedeMetrics metrics,
+      MetricsConfig metricsConfig, Clock clock) {
+    Module essentialModule = new EssentialModule(
+        new ComponentLoggerFactory("LIFECYCLE"),
+        metricsConfig,
+        clock);
+    // The engine metrics are registered where ToroDB Stampede can read them
+    Module overrides = binder -> binder.bind(ToroMetricRegistry.class)
+        .annotatedWith(Essential.class)
+        .toInstance(metrics.getToroMetricRegistry());
+    if (!threads.getVirtual()) {
+      return Modules.override(essentialModule).with(overrides);
+    }
+
+    Optional<ThreadFactory> virtualThreadFactory = VirtualThreads.newThreadFactory(
+        "torodb-virtual-");
+    if (!virtualThreadFactory.isPresent()) {
+      LOGGER.warn("Virtual threads are not supported by this JVM, platform threads will be used");
+      return Modules.override(essentialModule).with(overrides);
+    }
+    LOGGER.info("Using virtual threads");
+    return Modules.override(essentialModule).with(overrides, binder ->
+        binder.bind(ThreadFactory.class).toInstance(virtualThreadFactory.get()));
+  }
+
+  private static StampedeTracer createTracer(Tracing tracing, ThreadFactory threadFactory) {
+    if (!tracing.getEnabled()) {
+      return StampedeTracer.disabled(threadFactory, LOGGER_FACTORY);
+    }
+    return StampedeTracer.toFile(Paths.get(tracing.getFile()), threadFactory, LOGGER_FACTORY);
+  }
+
+  private static ReplicationFiltersReloader createFiltersReloader(CliConfig cliConfig,
+      Config config, StampedeService stampedeService) throws JMException {
+    String watchedFile = null;
+    if (config.getReplication().getReloadFilters()) {
+      watchedFile = cliConfig.hasConfFile() ? cliConfig.getConfFile() : cliConfig.getXmlConfFile();
+      if (watchedFile == null) {
+        LOGGER.warn("Replication filters reload is enabled but no configuration file has been "
+            + "specified. Filters can only be reloaded through JMX");
+      }
+    }
+
+    ReplicationFiltersReloader filtersReloader = new ReplicationFiltersReloader(cliConfig,
+        config.getReplication(), stampedeService, LOGGER_FACTORY, watchedFile);
+    ManagementFactory.getPlatformMBeanServer().registerMBean(filtersReloader,
+        new ObjectName("com.torodb.stampede:type=ReplicationFiltersReloader"));
+
+    return filtersReloader;
+  }
+
+  private static LogLevels createLogLevels(Config config, StampedeConfig stampedeConfig)
+      throws JMException {
+    LogLevels logLevels = new LogLevels(config.getLogging().getAsync().getEnabled(),
+        stampedeConfig.getThreadFactory(), LOGGER_FACTORY);
+    ManagementFactory.getPlatformMBeanServer().registerMBean(logLevels,
+        new ObjectName("com.torodb.stampede:type=LogLevels"));
+
+    return logLevels;
+  }
+
+  private static PrometheusEndpoint createMetricsEndpoint(MetricsEndpoint metricsEndpoint,
+      StampedeConfig stampedeConfig) {
+    InetSocketAddress address;
+    if (metricsEndpoint.getBindIp().equals("*")) {
+      address = new InetSocketAddress(metricsEndpoint.getPort());
+    } else {
+      address = new InetSocketAddress(metricsEndpoint.getBindIp(), metricsEndpoint.getPort());
+    }
+
+    return new PrometheusEndpoint(stampedeConfig.getMetrics(), address,
+        stampedeConfig.getThreadFactory(), LOGGER_FACTORY);
+  }
+
+  static void configureLogger(CliConfig cliConfig, Config config) {
     // If not specified in configuration then the log4j2.xml is used
     // instead (by default)
     if (config.getLogging().getLog4j2File() != null) {
@@ -356,6 +502,19 @@ public class Main {
     if (config.getLogging().getFile() != null) {
       Log4jUtils.appendToLogFile(config.getLogging().getFile());
     }
+
+    AsyncLogging async = config.getLogging().getAsync();
+    if (async.getEnabled()) {
+      AsyncLoggers.enable(
+          async.getRingBufferSize(),
+          async.getQueueFullPolicy() == AsyncLogging.QueueFullPolicy.discard,
+          Level.toLevel(async.getDiscardThreshold()));
+    }
+
+    // Akka does not even create debug events unless its own log level allows them
+    if (LogManager.getLogger("akka").isDebugEnabled()) {
+      System.setProperty("akka.loglevel", "DEBUG");
+    }
   }
 
   private static String readPwd() throws IOException {
@@ -400,12 +559,15 @@ public class Main {
   private static List<StampedeConfig.ShardConfigBuilder> createShardConfigBuilders(
       Replication replicationConfig) {
 
-    AtomicInteger counter = new AtomicInteger();
-
     assert replicationConfig.isShardingReplication();
-    return replicationConfig.getShardList().stream()
-        .map(shardRepl -> mapShardReplication(replicationConfig, shardRepl, counter))
-        .collect(Collectors.toList());
+    List<ShardReplication> shardRepls = replicationConfig.getShardList();
+    List<String> shardIds = getShardIds(shardRepls);
+
+    List<StampedeConfig.ShardConfigBuilder> builders = new ArrayList<>(shardRepls.size());
+    for (int i = 0; i < shardRepls.size(); i++) {
+      builders.add(mapShardReplication(replicationConfig, shardRepls.get(i), shardIds.get(i)));
+    }
+    return builders;
   }
 
   private static StampedeConfig.ShardConfigBuilder createUnshardedShardBuilder(
@@ -415,20 +577,29 @@ public class Main {
   }
 
   private static StampedeConfig.ShardConfigBuilder mapShardReplication(
-      Replication replicationConfig, ShardReplication shardRepl, AtomicInteger counter) {
+      Replication replicationConfig, ShardReplication shardRepl, String shardId) {
 
     ShardReplication mergedShardConfig = replicationConfig.mergeWith(shardRepl);
-    Supplier<String> shardIdProvider = () -> getShardId(shardRepl, counter);
-    
-    return translateShardConfig(mergedShardConfig, shardIdProvider);
+
+    return translateShardConfig(mergedShardConfig, () -> shardId);
   }
 
-  private static String getShardId(ShardReplication shardRepl, AtomicInteger counter) {
-    if (shardRepl.getName().isDefault() && shardRepl.getName().value() != null) {
-      return shardRepl.getName().value();
-    } else {
-      return "s" + counter.incrementAndGet();
+  /**
+   * Returns the id of each of the given shards: its name if it has one, otherwise {@code s<N>},
+   * where N counts the unnamed shards.
+   */
+  private static List<String> getShardIds(List<ShardReplication> shardRepls) {
+    int unnamed = 0;
+    List<String> shardIds = new ArrayList<>(shardRepls.size());
+    for (ShardReplication shardRepl : shardRepls) {
+      if (shardRepl.getName().isDefault() && shardRepl.getName().value() != null) {
+        shardIds.add(shardRepl.getName().value());
+      } else {
+        unnamed++;
+        shardIds.add("s" + unnamed);
+      }
     }
+    return shardIds;
   }
 
   private static StampedeConfig.ShardConfigBuilder translateShardConfig(
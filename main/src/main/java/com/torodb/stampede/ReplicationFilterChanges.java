@@ -0,0 +1,136 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+import com.torodb.packaging.config.model.protocol.mongo.AbstractReplication;
+import com.torodb.packaging.config.model.protocol.mongo.FilterList.IndexFilter;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+/**
+ * Compares the {@code include} and {@code exclude} sections of two replication configurations.
+ *
+ * <p>Database and collection names are compared literally, so changing a pattern for another one
+ * is always considered to include new namespaces. Changes on indexes are not considered.
+ */
+class ReplicationFilterChanges {
+
+  private ReplicationFilterChanges() {
+  }
+
+  /**
+   * Returns true if the filters of {@code newReplication} accept databases or collections that
+   * the filters of {@code oldReplication} did not accept.
+   */
+  static boolean includesNewNamespaces(AbstractReplication<?> oldReplication,
+      AbstractReplication<?> newReplication) {
+    return includesNewNamespaces(oldReplication.getInclude(), oldReplication.getExclude(),
+        newReplication.getInclude(), newReplication.getExclude());
+  }
+
+  /**
+   * Returns true if both configurations have the same {@code include} and {@code exclude}
+   * sections, including their index filters. A missing section is the same as an empty one.
+   */
+  static boolean hasSameFilters(AbstractReplication<?> oldReplication,
+      AbstractReplication<?> newReplication) {
+    return hasSameFilters(oldReplication.getInclude(), oldReplication.getExclude(),
+        newReplication.getInclude(), newReplication.getExclude());
+  }
+
+  static boolean hasSameFilters(
+      @Nullable Map<String, Map<String, List<IndexFilter>>> oldInclude,
+      @Nullable Map<String, Map<String, List<IndexFilter>>> oldExclude,
+      @Nullable Map<String, Map<String, List<IndexFilter>>> newInclude,
+      @Nullable Map<String, Map<String, List<IndexFilter>>> newExclude) {
+    return nonNull(oldInclude).equals(nonNull(newInclude))
+        && nonNull(oldExclude).equals(nonNull(newExclude));
+  }
+
+  static boolean includesNewNamespaces(
+      @Nullable Map<String, Map<String, List<IndexFilter>>> oldInclude,
+      @Nullable Map<String, Map<String, List<IndexFilter>>> oldExclude,
+      @Nullable Map<String, Map<String, List<IndexFilter>>> newInclude,
+      @Nullable Map<String, Map<String, List<IndexFilter>>> newExclude) {
+    return includesMore(nonNull(oldInclude), nonNull(newInclude))
+        || excludesLess(nonNull(oldExclude), nonNull(newExclude));
+  }
+
+  private static boolean includesMore(Map<String, Map<String, List<IndexFilter>>> oldInclude,
+      Map<String, Map<String, List<IndexFilter>>> newInclude) {
+    // An empty include section includes everything
+    if (oldInclude.isEmpty()) {
+      return false;
+    }
+    if (newInclude.isEmpty()) {
+      return true;
+    }
+    for (Map.Entry<String, Map<String, List<IndexFilter>>> database : newInclude.entrySet()) {
+      if (!oldInclude.containsKey(database.getKey())) {
+        return true;
+      }
+      Map<String, List<IndexFilter>> oldCollections = nonNullCollections(
+          oldInclude.get(database.getKey()));
+      // A database without collections includes all of them
+      if (oldCollections.isEmpty()) {
+        continue;
+      }
+      Map<String, List<IndexFilter>> newCollections = nonNullCollections(database.getValue());
+      if (newCollections.isEmpty()
+          || !oldCollections.keySet().containsAll(newCollections.keySet())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static boolean excludesLess(Map<String, Map<String, List<IndexFilter>>> oldExclude,
+      Map<String, Map<String, List<IndexFilter>>> newExclude) {
+    for (Map.Entry<String, Map<String, List<IndexFilter>>> database : oldExclude.entrySet()) {
+      if (!newExclude.containsKey(database.getKey())) {
+        return true;
+      }
+      Map<String, List<IndexFilter>> newCollections = nonNullCollections(
+          newExclude.get(database.getKey()));
+      // A database without collections excludes all of them
+      if (newCollections.isEmpty()) {
+        continue;
+      }
+      Map<String, List<IndexFilter>> oldCollections = nonNullCollections(database.getValue());
+      if (oldCollections.isEmpty()
+          || !newCollections.keySet().containsAll(oldCollections.keySet())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private static Map<String, Map<String, List<IndexFilter>>> nonNull(
+      @Nullable Map<String, Map<String, List<IndexFilter>>> filters) {
+    return filters != null ? filters : Collections.emptyMap();
+  }
+
+  private static Map<String, List<IndexFilter>> nonNullCollections(
+      @Nullable Map<String, List<IndexFilter>> collections) {
+    return collections != null ? collections : Collections.emptyMap();
+  }
+}
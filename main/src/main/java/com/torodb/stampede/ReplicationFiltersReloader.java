@@ -0,0 +1,159 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import com.torodb.core.logging.LoggerFactory;
+import com.torodb.mongodb.repl.filters.ReplicationFilters;
+import com.torodb.packaging.util.ReplicationFiltersFactory;
+import com.torodb.stampede.config.model.Config;
+import com.torodb.stampede.config.model.mongo.replication.Replication;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+/**
+ * Applies the replication filters found on the configuration to a running
+ * {@link StampedeService}.
+ *
+ * <p>The configuration is read again each time {@link #reload(boolean)} is called through JMX and,
+ * if a configuration file to watch is given, each time that file is created or modified. Filters
+ * that are the same as the applied ones are ignored.
+ *
+ * <p>Filters that include databases or collections that were not replicated need all shards to be
+ * synchronized again, which drops all the replicated data. That is only done when
+ * {@code reload(true)} is called through JMX, never when the watched file changes.
+ */
+public class ReplicationFiltersReloader extends AbstractExecutionThreadService
+    implements ReplicationFiltersReloaderMXBean {
+
+  private final Logger logger;
+  private final CliConfig cliConfig;
+  private final StampedeService stampedeService;
+  @Nullable
+  private final Path watchedFile;
+  private Replication appliedReplication;
+
+  /**
+   * @param replication the replication configuration whose filters are being used
+   */
+  public ReplicationFiltersReloader(CliConfig cliConfig, Replication replication,
+      StampedeService stampedeService, LoggerFactory loggerFactory,
+      @Nullable String watchedFile) {
+    this.logger = loggerFactory.apply(this.getClass());
+    this.cliConfig = cliConfig;
+    this.appliedReplication = replication;
+    this.stampedeService = stampedeService;
+    this.watchedFile = watchedFile != null ? Paths.get(watchedFile).toAbsolutePath() : null;
+  }
+
+  @Override
+  protected String serviceName() {
+    return "replication-filters-reloader";
+  }
+
+  @Override
+  public void reload() throws Exception {
+    reload(false);
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalStateException if the new filters include databases or collections that were
+   *                               not replicated and {@code resync} is false
+   */
+  @Override
+  public synchronized void reload(boolean resync) throws Exception {
+    Config config = CliConfigUtils.readConfig(cliConfig);
+    Replication replication = config.getReplication();
+    if (ReplicationFilterChanges.hasSameFilters(appliedReplication, replication)) {
+      logger.info("Replication filters have not changed");
+      return;
+    }
+    boolean includesNew = ReplicationFilterChanges.includesNewNamespaces(appliedReplication,
+        replication);
+    if (includesNew && !resync) {
+      throw new IllegalStateException("The new replication filters include databases or "
+          + "collections that were not replicated. They have not been applied. Invoke reload "
+          + "with resync true through JMX to drop the replicated data and synchronize all shards "
+          + "again with them");
+    }
+    ReplicationFilters replFilters = ReplicationFiltersFactory.getReplicationFilters(replication);
+
+    stampedeService.reloadReplicationFilters(replFilters, includesNew);
+    appliedReplication = replication;
+  }
+
+  @Override
+  protected void run() throws Exception {
+    if (watchedFile == null) {
+      return;
+    }
+    stampedeService.awaitRunning();
+
+    try (WatchService watchService = FileSystems.getDefault().newWatchService()) {
+      watchedFile.getParent().register(watchService,
+          StandardWatchEventKinds.ENTRY_CREATE,
+          StandardWatchEventKinds.ENTRY_MODIFY);
+      logger.info("Watching {} for replication filter changes", watchedFile);
+
+      while (isRunning()) {
+        WatchKey key = watchService.poll(1, TimeUnit.SECONDS);
+        if (key == null) {
+          continue;
+        }
+        boolean modified = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+          if (watchedFile.getFileName().equals(event.context())) {
+            modified = true;
+          }
+        }
+        key.reset();
+
+        if (modified) {
+          reloadOnChange();
+        }
+      }
+    }
+  }
+
+  private void reloadOnChange() {
+    try {
+      reload(false);
+    } catch (IllegalStateException ex) {
+      logger.warn("Replication filters of {} have not been applied: {}", watchedFile,
+          ex.getMessage());
+    } catch (IOException ex) {
+      logger.warn("Configuration file " + watchedFile + " could not be read, replication "
+          + "filters have not been changed", ex);
+    } catch (Exception ex) {
+      logger.error("Error while reloading replication filters from " + watchedFile, ex);
+    }
+  }
+}
@@ -0,0 +1,44 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+/**
+ * JMX interface used to apply the replication filters of the configuration to a running ToroDB
+ * Stampede.
+ */
+public interface ReplicationFiltersReloaderMXBean {
+
+  /**
+   * Reads the configuration again and applies its include and exclude sections to the running
+   * replication.
+   *
+   * <p>It is the same as {@code reload(false)}.
+   */
+  public void reload() throws Exception;
+
+  /**
+   * Reads the configuration again and applies its include and exclude sections to the running
+   * replication.
+   *
+   * <p>If the new filters include databases or collections that were not replicated, they are
+   * only applied when {@code resync} is true. Then all the replicated data is dropped and all
+   * shards are synchronized again from scratch.
+   */
+  public void reload(boolean resync) throws Exception;
+
+}
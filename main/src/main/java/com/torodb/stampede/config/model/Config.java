@@ -28,12 +28,15 @@ import com.torodb.packaging.config.validation.SslEnabledForX509Authentication;
 import com.torodb.stampede.config.model.backend.Backend;
 import com.torodb.stampede.config.model.cache.OffHeapBuffer;
 import com.torodb.stampede.config.model.logging.Logging;
+import com.torodb.stampede.config.model.metrics.MetricsEndpoint;
 import com.torodb.stampede.config.model.mongo.replication.Replication;
+import com.torodb.stampede.config.model.threads.Threads;
 
 import javax.validation.Valid;
 import javax.validation.constraints.NotNull;
 
-@JsonPropertyOrder({"logging", "metricsEnabled", "offHeapBuffer", "replication", "backend"})
+@JsonPropertyOrder({"logging", "metricsEnabled", "metricsEndpoint", "offHeapBuffer", "replication",
+    "threads", "backend"})
 public class Config implements MetricsConfig {
 
   @Description("config.logging")
@@ -47,6 +50,12 @@ public class Config implements MetricsConfig {
   @JsonProperty(required = true)
   private Boolean metricsEnabled = false;
 
+  @Description("config.metricsEndpoint")
+  @NotNull
+  @Valid
+  @JsonProperty(required = true)
+  private MetricsEndpoint metricsEndpoint = new MetricsEndpoint();
+
   @Description("config.offHeapBuffer")
   private OffHeapBuffer offHeapBuffer = new OffHeapBuffer();
 
@@ -57,6 +66,12 @@ public class Config implements MetricsConfig {
   @JsonProperty(required = true)
   private Replication replication = new Replication();
 
+  @Description("config.threads")
+  @NotNull
+  @Valid
+  @JsonProperty(required = true)
+  private Threads threads = new Threads();
+
   @Description("config.backend")
   @NotNull
   @Valid
@@ -82,6 +97,16 @@ public class Config implements MetricsConfig {
     this.metricsEnabled = metricsEnabled;
   }
 
+  public MetricsEndpoint getMetricsEndpoint() {
+    return metricsEndpoint;
+  }
+
+  public void setMetricsEndpoint(MetricsEndpoint metricsEndpoint) {
+    if (metricsEndpoint != null) {
+      this.metricsEndpoint = metricsEndpoint;
+    }
+  }
+
 
   public OffHeapBuffer getOffHeapBuffer() {
     return offHeapBuffer;
@@ -104,6 +129,16 @@ public class Config implements MetricsConfig {
     this.replication = replication;
   }
 
+  public Threads getThreads() {
+    return threads;
+  }
+
+  public void setThreads(Threads threads) {
+    if (threads != null) {
+      this.threads = threads;
+    }
+  }
+
   public Backend getBackend() {
     return backend;
   }
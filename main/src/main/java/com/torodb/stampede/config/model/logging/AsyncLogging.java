@@ -0,0 +1,90 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.config.model.logging;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.torodb.packaging.config.annotation.Description;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Pattern;
+
+@Description("config.logging.async")
+@JsonPropertyOrder({"enabled", "ringBufferSize", "queueFullPolicy", "discardThreshold"})
+public class AsyncLogging {
+
+  @Description("config.logging.async.enabled")
+  @NotNull
+  @JsonProperty(required = true)
+  private Boolean enabled = false;
+
+  @Description("config.logging.async.ringBufferSize")
+  @NotNull
+  @Min(128)
+  @JsonProperty(required = true)
+  private Integer ringBufferSize = 256 * 1024;
+
+  @Description("config.logging.async.queueFullPolicy")
+  @NotNull
+  @JsonProperty(required = true)
+  private QueueFullPolicy queueFullPolicy = QueueFullPolicy.discard;
+
+  @Description("config.logging.async.discardThreshold")
+  @NotNull
+  @Pattern(regexp = "OFF|FATAL|ERROR|WARN|INFO|DEBUG|TRACE|ALL")
+  @JsonProperty(required = true)
+  private String discardThreshold = "INFO";
+
+  public Boolean getEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(Boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Integer getRingBufferSize() {
+    return ringBufferSize;
+  }
+
+  public void setRingBufferSize(Integer ringBufferSize) {
+    this.ringBufferSize = ringBufferSize;
+  }
+
+  public QueueFullPolicy getQueueFullPolicy() {
+    return queueFullPolicy;
+  }
+
+  public void setQueueFullPolicy(QueueFullPolicy queueFullPolicy) {
+    this.queueFullPolicy = queueFullPolicy;
+  }
+
+  public String getDiscardThreshold() {
+    return discardThreshold;
+  }
+
+  public void setDiscardThreshold(String discardThreshold) {
+    this.discardThreshold = discardThreshold;
+  }
+
+  public static enum QueueFullPolicy {
+    block,
+    discard
+  }
+}
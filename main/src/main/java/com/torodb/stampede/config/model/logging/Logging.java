@@ -23,8 +23,12 @@ import com.torodb.packaging.config.annotation.Description;
 import com.torodb.packaging.config.model.generic.LogLevel;
 import com.torodb.packaging.config.model.generic.LogPackages;
 
+import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
+
 @Description("config.logging")
-@JsonPropertyOrder({"logLevel", "logPackages", "logFile", "log4j2File"})
+@JsonPropertyOrder({"logLevel", "logPackages", "logFile", "log4j2File", "async", "rateLimit",
+    "tracing"})
 public class Logging {
 
   @Description("config.generic.logLevel")
@@ -36,6 +40,18 @@ public class Logging {
   private String file;
   @Description("config.generic.log4j2File")
   private String log4j2File;
+  @Description("config.logging.async")
+  @NotNull
+  @Valid
+  private AsyncLogging async = new AsyncLogging();
+  @Description("config.logging.rateLimit")
+  @NotNull
+  @Valid
+  private RateLimit rateLimit = new RateLimit();
+  @Description("config.logging.tracing")
+  @NotNull
+  @Valid
+  private Tracing tracing = new Tracing();
 
   public LogLevel getLevel() {
     return level;
@@ -69,4 +85,34 @@ public class Logging {
     this.log4j2File = log4j2File;
   }
 
+  public AsyncLogging getAsync() {
+    return async;
+  }
+
+  public void setAsync(AsyncLogging async) {
+    if (async != null) {
+      this.async = async;
+    }
+  }
+
+  public RateLimit getRateLimit() {
+    return rateLimit;
+  }
+
+  public void setRateLimit(RateLimit rateLimit) {
+    if (rateLimit != null) {
+      this.rateLimit = rateLimit;
+    }
+  }
+
+  public Tracing getTracing() {
+    return tracing;
+  }
+
+  public void setTracing(Tracing tracing) {
+    if (tracing != null) {
+      this.tracing = tracing;
+    }
+  }
+
 }
@@ -0,0 +1,88 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.config.model.logging;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.google.common.collect.Lists;
+import com.torodb.packaging.config.annotation.Description;
+
+import java.util.List;
+
+import javax.validation.constraints.Min;
+import javax.validation.constraints.NotNull;
+
+@Description("config.logging.rateLimit")
+@JsonPropertyOrder({"enabled", "interval", "burst", "loggers"})
+public class RateLimit {
+
+  @Description("config.logging.rateLimit.enabled")
+  @NotNull
+  @JsonProperty(required = true)
+  private Boolean enabled = false;
+
+  @Description("config.logging.rateLimit.interval")
+  @NotNull
+  @Min(1)
+  @JsonProperty(required = true)
+  private Integer interval = 10;
+
+  @Description("config.logging.rateLimit.burst")
+  @NotNull
+  @Min(1)
+  @JsonProperty(required = true)
+  private Integer burst = 5;
+
+  @Description("config.logging.rateLimit.loggers")
+  @NotNull
+  @JsonProperty(required = true)
+  private List<String> loggers = Lists.newArrayList(
+      "com.torodb.mongodb.repl", "com.torodb.backend", "com.torodb.stampede");
+
+  public Boolean getEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(Boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public Integer getInterval() {
+    return interval;
+  }
+
+  public void setInterval(Integer interval) {
+    this.interval = interval;
+  }
+
+  public Integer getBurst() {
+    return burst;
+  }
+
+  public void setBurst(Integer burst) {
+    this.burst = burst;
+  }
+
+  public List<String> getLoggers() {
+    return loggers;
+  }
+
+  public void setLoggers(List<String> loggers) {
+    this.loggers = loggers;
+  }
+}
@@ -0,0 +1,70 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.config.model.metrics;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.torodb.packaging.config.annotation.Description;
+import com.torodb.packaging.config.validation.Port;
+
+import javax.validation.constraints.NotNull;
+
+@Description("config.metricsEndpoint")
+@JsonPropertyOrder({"enabled", "bindIp", "port"})
+public class MetricsEndpoint {
+
+  @Description("config.metricsEndpoint.enabled")
+  @NotNull
+  @JsonProperty(required = true)
+  private Boolean enabled = false;
+
+  @Description("config.metricsEndpoint.bindIp")
+  @NotNull
+  @JsonProperty(required = true)
+  private String bindIp = "localhost";
+
+  @Description("config.metricsEndpoint.port")
+  @NotNull
+  @Port
+  @JsonProperty(required = true)
+  private Integer port = 9400;
+
+  public Boolean getEnabled() {
+    return enabled;
+  }
+
+  public void setEnabled(Boolean enabled) {
+    this.enabled = enabled;
+  }
+
+  public String getBindIp() {
+    return bindIp;
+  }
+
+  public void setBindIp(String bindIp) {
+    this.bindIp = bindIp;
+  }
+
+  public Integer getPort() {
+    return port;
+  }
+
+  public void setPort(Integer port) {
+    this.port = port;
+  }
+}
@@ -35,12 +35,14 @@ import com.torodb.packaging.config.validation.NotEmptySrtingWithDefault;
 import java.util.List;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotNull;
 
 @JsonPropertyOrder({"replSetName", "syncSource", "ssl", "auth", "include", "exclude",
-    "mongopassFile", "shards"})
+    "mongopassFile", "reloadFilters", "shards"})
 public class Replication extends AbstractReplication<ShardReplication> {
 
   private String mongopassFile = ConfigUtils.getUserHomeFilePath(".mongopass");
+  private Boolean reloadFilters = false;
 
   public Replication() {
     super.setSyncSource(ListOfStringWithDefault.withDefault(ImmutableList.of("localhost:27017")));
@@ -77,6 +79,17 @@ public class Replication extends AbstractReplication<ShardReplication> {
     return mongopassFile;
   }
 
+  @Description("config.mongo.replication.reloadFilters")
+  @NotNull
+  @JsonProperty(required = true)
+  public Boolean getReloadFilters() {
+    return reloadFilters;
+  }
+
+  public void setReloadFilters(Boolean reloadFilters) {
+    this.reloadFilters = reloadFilters;
+  }
+
   /**
    * This method replicates #getShardList, but it is needed to avoid errors on jackson, please
    * use that method instead.
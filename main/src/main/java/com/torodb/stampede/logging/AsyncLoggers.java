@@ -0,0 +1,146 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.logging;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.Appender;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AsyncAppender;
+import org.apache.logging.log4j.core.async.AsyncLoggerConfig;
+import org.apache.logging.log4j.core.async.AsyncLoggerConfigDelegate;
+import org.apache.logging.log4j.core.async.AsyncLoggerConfigDisruptor;
+import org.apache.logging.log4j.core.config.AppenderRef;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.apache.logging.log4j.core.config.Property;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Replaces the loggers of the current Log4j2 configuration by asynchronous loggers.
+ *
+ * <p>Asynchronous loggers hand the log events to a preallocated LMAX Disruptor ring buffer, so
+ * logging threads neither lock nor allocate on steady state. When the ring buffer is full, events
+ * are either discarded or the logging thread blocks until there is room, depending on the
+ * configured policy.
+ *
+ * <p>The root logger, used by third party libraries, is not replaced. Appender references to
+ * {@link AsyncAppender async appenders} are replaced by references to the appenders they wrap, to
+ * do not queue the events twice.
+ */
+public class AsyncLoggers {
+
+  private AsyncLoggers() {
+  }
+
+  /**
+   * Enables the asynchronous loggers.
+   *
+   * @param ringBufferSize   the number of events the ring buffer can hold
+   * @param discard          if events should be discarded when the ring buffer is full
+   * @param discardThreshold events at this level or less severe are discarded when the ring
+   *                         buffer is full, more severe events are always logged
+   */
+  public static void enable(int ringBufferSize, boolean discard, Level discardThreshold) {
+    // These properties are read when the async logger delegate is created
+    System.setProperty("AsyncLoggerConfig.RingBufferSize", Integer.toString(ringBufferSize));
+    System.setProperty("log4j2.AsyncQueueFullPolicy", discard ? "Discard" : "Default");
+    System.setProperty("log4j2.DiscardThreshold", discardThreshold.name());
+
+    LoggerContext context = (LoggerContext) LogManager.getContext(false);
+    Configuration configuration = context.getConfiguration();
+
+    List<LoggerConfig> loggerConfigs = new ArrayList<>(configuration.getLoggers().values());
+    for (LoggerConfig loggerConfig : loggerConfigs) {
+      if (loggerConfig.getName().isEmpty() || loggerConfig instanceof AsyncLoggerConfig) {
+        continue;
+      }
+      LoggerConfig asyncLoggerConfig = toAsync(loggerConfig, configuration);
+      configuration.removeLogger(loggerConfig.getName());
+      configuration.addLogger(loggerConfig.getName(), asyncLoggerConfig);
+    }
+
+    AsyncLoggerConfigDelegate delegate = configuration.getAsyncLoggerConfigDelegate();
+    if (delegate instanceof AsyncLoggerConfigDisruptor) {
+      ((AsyncLoggerConfigDisruptor) delegate).start();
+    }
+    for (LoggerConfig loggerConfig : configuration.getLoggers().values()) {
+      if (loggerConfig instanceof AsyncLoggerConfig) {
+        loggerConfig.start();
+      }
+    }
+
+    context.updateLoggers();
+  }
+
+  /**
+   * Creates and starts an additive asynchronous logger without appenders, which logs its events
+   * on the appenders of its parents. It must be added to the configuration.
+   */
+  static LoggerConfig createLoggerConfig(String name, Level level, Configuration configuration) {
+    LoggerConfig loggerConfig = AsyncLoggerConfig.createLogger(
+        Boolean.TRUE.toString(),
+        level.name(),
+        name,
+        Boolean.FALSE.toString(),
+        new AppenderRef[0],
+        null,
+        configuration,
+        null
+    );
+    loggerConfig.start();
+    return loggerConfig;
+  }
+
+  private static LoggerConfig toAsync(LoggerConfig loggerConfig, Configuration configuration) {
+    List<AppenderRef> refs = new ArrayList<>();
+    for (AppenderRef ref : loggerConfig.getAppenderRefs()) {
+      Appender appender = configuration.getAppender(ref.getRef());
+      if (appender instanceof AsyncAppender) {
+        for (String wrappedRef : ((AsyncAppender) appender).getAppenderRefStrings()) {
+          refs.add(AppenderRef.createAppenderRef(wrappedRef, ref.getLevel(), ref.getFilter()));
+        }
+      } else {
+        refs.add(ref);
+      }
+    }
+
+    List<Property> properties = loggerConfig.getPropertyList();
+
+    LoggerConfig asyncLoggerConfig = AsyncLoggerConfig.createLogger(
+        Boolean.toString(loggerConfig.isAdditive()),
+        loggerConfig.getLevel().name(),
+        loggerConfig.getName(),
+        Boolean.toString(loggerConfig.isIncludeLocation()),
+        refs.toArray(new AppenderRef[refs.size()]),
+        properties != null ? properties.toArray(new Property[properties.size()]) : null,
+        configuration,
+        loggerConfig.getFilter()
+    );
+    // Appender references are only resolved when a configuration is started
+    for (AppenderRef ref : refs) {
+      Appender appender = configuration.getAppender(ref.getRef());
+      if (appender != null) {
+        asyncLoggerConfig.addAppender(appender, ref.getLevel(), ref.getFilter());
+      }
+    }
+    return asyncLoggerConfig;
+  }
+}
@@ -0,0 +1,75 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.logging;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.filter.AbstractFilter;
+import org.apache.logging.log4j.message.MapMessage;
+import org.apache.logging.log4j.message.Message;
+
+import java.util.Map;
+
+/**
+ * A filter that decides if an event is logged using the level of its component, when the
+ * component level has been changed, or the level its logger had before component levels were
+ * changed otherwise.
+ *
+ * <p>Component loggers add the component to their {@link MapMessage messages}, which can only be
+ * read once the event is created. That is why, while a component level is changed, loggers are
+ * set to the most verbose component level and this filter, added to each logger, discards what
+ * they would not log.
+ */
+class ComponentLevelFilter extends AbstractFilter {
+
+  static final String COMPONENT_KEY = "component";
+
+  private final Configuration configuration;
+  private final Map<String, Level> componentLevels;
+  private final Map<String, Level> originalLevels;
+
+  ComponentLevelFilter(Configuration configuration, Map<String, Level> componentLevels,
+      Map<String, Level> originalLevels) {
+    super(Result.NEUTRAL, Result.DENY);
+    this.configuration = configuration;
+    this.componentLevels = componentLevels;
+    this.originalLevels = originalLevels;
+  }
+
+  @Override
+  public Result filter(LogEvent event) {
+    Level level = null;
+
+    Message message = event.getMessage();
+    if (message instanceof MapMessage) {
+      String component = ((MapMessage) message).get(COMPONENT_KEY);
+      if (component != null) {
+        level = componentLevels.get(component);
+      }
+    }
+    if (level == null) {
+      level = originalLevels.get(configuration.getLoggerConfig(event.getLoggerName()).getName());
+    }
+
+    if (level == null || event.getLevel().isMoreSpecificThan(level)) {
+      return onMatch;
+    }
+    return onMismatch;
+  }
+}
@@ -0,0 +1,272 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.logging;
+
+import com.google.common.base.Preconditions;
+import com.torodb.core.logging.LoggerFactory;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Changes the levels of loggers and components at runtime.
+ *
+ * <p>Setting the level of a logger or component cancels the pending revert of its previous
+ * change, if any.
+ */
+public class LogLevels implements LogLevelsMXBean, AutoCloseable {
+
+  private final Logger logger;
+  private final boolean asyncLoggers;
+  private final ScheduledExecutorService reverter;
+  private final TimeUnit revertUnit;
+  private final Map<String, Level> componentLevels = new ConcurrentHashMap<>();
+  private final Map<String, Level> originalLevels = new ConcurrentHashMap<>();
+  private final Set<String> filteredLoggers = new HashSet<>();
+  private final Map<String, Revert> loggerReverts = new HashMap<>();
+  private final Map<String, Revert> componentReverts = new HashMap<>();
+  private ComponentLevelFilter componentFilter;
+
+  /**
+   * @param asyncLoggers if {@link AsyncLoggers} are enabled, so the loggers created to change a
+   *                     level are asynchronous too
+   */
+  public LogLevels(boolean asyncLoggers, ThreadFactory threadFactory,
+      LoggerFactory loggerFactory) {
+    this(asyncLoggers, threadFactory, loggerFactory, TimeUnit.MINUTES);
+  }
+
+  LogLevels(boolean asyncLoggers, ThreadFactory threadFactory, LoggerFactory loggerFactory,
+      TimeUnit revertUnit) {
+    this.logger = loggerFactory.apply(this.getClass());
+    this.asyncLoggers = asyncLoggers;
+    this.reverter = Executors.newSingleThreadScheduledExecutor(threadFactory);
+    this.revertUnit = revertUnit;
+  }
+
+  @Override
+  public synchronized String getLevel(String loggerName) {
+    LoggerConfig loggerConfig = getConfiguration().getLoggerConfig(loggerName);
+    Level level = originalLevels.get(loggerConfig.getName());
+    if (level == null) {
+      level = loggerConfig.getLevel();
+    }
+    return level.name();
+  }
+
+  @Override
+  public synchronized void setLevel(String loggerName, String level, long revertAfterMinutes) {
+    Level newLevel = parseLevel(level);
+    Level previousLevel = parseLevel(getLevel(loggerName));
+
+    logger.info("Setting level of logger {} to {}", loggerName, newLevel);
+    LoggerConfig loggerConfig = getOrCreateLoggerConfig(loggerName);
+    if (componentFilter == null) {
+      loggerConfig.setLevel(newLevel);
+      getContext().updateLoggers();
+    } else {
+      // Its final level is set by applyComponentLevels()
+      originalLevels.put(loggerName, newLevel);
+      applyComponentLevels();
+    }
+
+    scheduleRevert(loggerReverts, loggerName, revertAfterMinutes,
+        () -> setLevel(loggerName, previousLevel.name(), 0));
+  }
+
+  @Override
+  public String getComponentLevel(String component) {
+    Level level = componentLevels.get(component);
+    return level != null ? level.name() : null;
+  }
+
+  @Override
+  public synchronized void setComponentLevel(String component, String level,
+      long revertAfterMinutes) {
+    Level newLevel = parseLevel(level);
+    Level previousLevel = componentLevels.get(component);
+
+    logger.info("Setting level of component {} to {}", component, newLevel);
+    componentLevels.put(component, newLevel);
+    applyComponentLevels();
+
+    scheduleRevert(componentReverts, component, revertAfterMinutes, () -> {
+      if (previousLevel != null) {
+        setComponentLevel(component, previousLevel.name(), 0);
+      } else {
+        resetComponentLevel(component);
+      }
+    });
+  }
+
+  @Override
+  public synchronized void resetComponentLevel(String component) {
+    scheduleRevert(componentReverts, component, 0, null);
+    if (componentLevels.remove(component) != null) {
+      logger.info("Component {} uses the level of its loggers again", component);
+      applyComponentLevels();
+    }
+  }
+
+  @Override
+  public void close() {
+    reverter.shutdownNow();
+  }
+
+  /**
+   * Cancels the pending revert of the given logger or component and schedules the new one, if
+   * {@code revertAfter} is positive.
+   */
+  private void scheduleRevert(Map<String, Revert> reverts, String name, long revertAfter,
+      Runnable action) {
+    Revert previous = reverts.remove(name);
+    if (previous != null) {
+      previous.future.cancel(false);
+    }
+    if (revertAfter > 0) {
+      Revert revert = new Revert(reverts, name, action);
+      revert.future = reverter.schedule(revert, revertAfter, revertUnit);
+      reverts.put(name, revert);
+    }
+  }
+
+  /**
+   * Returns the logger config with the given name, creating it like the ones created by
+   * {@link AsyncLoggers} if they are enabled.
+   */
+  private LoggerConfig getOrCreateLoggerConfig(String loggerName) {
+    Configuration configuration = getConfiguration();
+    LoggerConfig loggerConfig = configuration.getLoggerConfig(loggerName);
+    if (loggerConfig.getName().equals(loggerName)) {
+      return loggerConfig;
+    }
+    if (asyncLoggers) {
+      loggerConfig = AsyncLoggers.createLoggerConfig(loggerName, loggerConfig.getLevel(),
+          configuration);
+    } else {
+      loggerConfig = new LoggerConfig(loggerName, loggerConfig.getLevel(), true);
+    }
+    configuration.addLogger(loggerName, loggerConfig);
+    return loggerConfig;
+  }
+
+  private void applyComponentLevels() {
+    Configuration configuration = getConfiguration();
+
+    if (componentLevels.isEmpty()) {
+      if (componentFilter != null) {
+        for (LoggerConfig loggerConfig : getLoggerConfigs(configuration)) {
+          loggerConfig.removeFilter(componentFilter);
+          Level original = originalLevels.get(loggerConfig.getName());
+          if (original != null) {
+            loggerConfig.setLevel(original);
+          }
+        }
+        componentFilter = null;
+        originalLevels.clear();
+        filteredLoggers.clear();
+        getContext().updateLoggers();
+      }
+      return;
+    }
+
+    if (componentFilter == null) {
+      componentFilter = new ComponentLevelFilter(configuration, componentLevels, originalLevels);
+    }
+
+    Level mostVerbose = getMostVerboseComponentLevel();
+    for (LoggerConfig loggerConfig : getLoggerConfigs(configuration)) {
+      if (filteredLoggers.add(loggerConfig.getName())) {
+        originalLevels.putIfAbsent(loggerConfig.getName(), loggerConfig.getLevel());
+        loggerConfig.addFilter(componentFilter);
+      }
+      Level original = originalLevels.get(loggerConfig.getName());
+      loggerConfig.setLevel(original.isMoreSpecificThan(mostVerbose) ? mostVerbose : original);
+    }
+    getContext().updateLoggers();
+  }
+
+  private static Collection<LoggerConfig> getLoggerConfigs(Configuration configuration) {
+    Set<LoggerConfig> result = new HashSet<>(configuration.getLoggers().values());
+    result.add(configuration.getRootLogger());
+    return result;
+  }
+
+  private Level getMostVerboseComponentLevel() {
+    Level result = Level.OFF;
+    for (Level level : componentLevels.values()) {
+      if (level.isLessSpecificThan(result)) {
+        result = level;
+      }
+    }
+    return result;
+  }
+
+  private static Level parseLevel(String level) {
+    Level result = Level.getLevel(level == null ? "" : level.toUpperCase());
+    Preconditions.checkArgument(result != null, "Unknown log level %s", level);
+    return result;
+  }
+
+  private static LoggerContext getContext() {
+    return (LoggerContext) LogManager.getContext(false);
+  }
+
+  private static Configuration getConfiguration() {
+    return getContext().getConfiguration();
+  }
+
+  private class Revert implements Runnable {
+
+    private final Map<String, Revert> reverts;
+    private final String name;
+    private final Runnable action;
+    private ScheduledFuture<?> future;
+
+    private Revert(Map<String, Revert> reverts, String name, Runnable action) {
+      this.reverts = reverts;
+      this.name = name;
+      this.action = action;
+    }
+
+    @Override
+    public void run() {
+      synchronized (LogLevels.this) {
+        // It may have been replaced while this task waited for the lock
+        if (reverts.get(name) == this) {
+          action.run();
+        }
+      }
+    }
+  }
+}
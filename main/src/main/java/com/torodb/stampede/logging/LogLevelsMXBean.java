@@ -0,0 +1,48 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.logging;
+
+/**
+ * JMX interface used to change log levels at runtime.
+ *
+ * <p>Levels are the names of the Log4j2 levels (OFF, FATAL, ERROR, WARN, INFO, DEBUG, TRACE and
+ * ALL). A positive {@code revertAfterMinutes} restores the previous level after that number of
+ * minutes, while zero or a negative value keeps the new level until it is changed again.
+ */
+public interface LogLevelsMXBean {
+
+  /**
+   * Returns the level that applies to the given logger, usually a package or class name.
+   */
+  String getLevel(String loggerName);
+
+  void setLevel(String loggerName, String level, long revertAfterMinutes);
+
+  /**
+   * Returns the level of the given component (like {@code LIFECYCLE} or {@code REPL-<shardId>}),
+   * or null if the component uses the level of its loggers.
+   */
+  String getComponentLevel(String component);
+
+  void setComponentLevel(String component, String level, long revertAfterMinutes);
+
+  /**
+   * Makes the given component use the level of its loggers again.
+   */
+  void resetComponentLevel(String component);
+}
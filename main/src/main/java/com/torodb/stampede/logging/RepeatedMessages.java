@@ -0,0 +1,352 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.logging;
+
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableMap;
+import com.torodb.core.logging.LoggerFactory;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.apache.logging.log4j.core.filter.AbstractFilter;
+import org.apache.logging.log4j.message.MapMessage;
+import org.apache.logging.log4j.message.Message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.Nullable;
+
+/**
+ * Rate limits the warnings and errors of some loggers.
+ *
+ * <p>Messages are grouped by logger, level, message pattern and namespace. The pattern of a
+ * parameterized message is its format, when it is available, and the pattern of other messages
+ * is their text with numbers, object ids, quoted values and the namespace masked, so the same
+ * error on different documents belongs to the same group. The namespace is the
+ * {@code namespace} or {@code ns} value of map messages or the thread context, or a namespace
+ * found after {@code ns}, {@code namespace} or {@code collection} on the text.
+ *
+ * <p>In each interval only the first {@code burst} messages of each group are logged, the rest
+ * are counted and, at the end of the interval, a single summary is logged for each group that
+ * exceeded the burst, at the level of the group. The number of messages that were not logged is
+ * also available on the {@code stampede.logging.suppressed.<logger>} meters, one for each of the
+ * given loggers, that add up all the groups of the logger and its children. Groups are not
+ * metered on their own, as patterns and namespaces are unbounded, so the count of each group is
+ * only reported by its summary.
+ */
+public class RepeatedMessages implements AutoCloseable {
+
+  private static final int MAX_GROUPS = 1024;
+  private static final int MAX_TEXT_LENGTH = 200;
+  private static final String OTHER_MESSAGES = "<too many different messages>";
+  /**
+   * The value of a counter whose group has been summarized. Counters with this value are being
+   * removed, so a new one is used.
+   */
+  private static final long SUMMARIZED = -1;
+  private static final Pattern NAMESPACE = Pattern.compile(
+      "\\b(?:ns|namespace|collection)\\b[:=]?\\s*[\"']?([\\w$-]+(?:\\.[\\w$-]+)+)",
+      Pattern.CASE_INSENSITIVE);
+  private static final Pattern QUOTED = Pattern.compile("\"[^\"]*\"|'[^']*'");
+  private static final Pattern OBJECT_ID = Pattern.compile("\\b[0-9a-fA-F]{24}\\b");
+  private static final Pattern NUMBER = Pattern.compile("\\b\\d+(?:\\.\\d+)?\\b");
+
+  private final Logger logger;
+  private final List<String> loggers;
+  private final int burst;
+  private final int intervalSeconds;
+  private final Map<String, Meter> suppressedMeters;
+  private final Map<MessageGroup, AtomicLong> counts = new ConcurrentHashMap<>();
+  private final Map<String, RateLimitFilter> filters = new ConcurrentHashMap<>();
+  private final ScheduledExecutorService summarizer;
+
+  /**
+   * @param loggers         the loggers (and their children) whose warnings and errors are rate
+   *                        limited
+   * @param burst           the number of messages of each group that are logged in each interval
+   * @param intervalSeconds the length of the interval, in seconds
+   * @param registry        where the meters of suppressed messages are registered
+   */
+  public RepeatedMessages(List<String> loggers, int burst, int intervalSeconds,
+      MetricRegistry registry, ThreadFactory threadFactory, LoggerFactory loggerFactory) {
+    this.logger = loggerFactory.apply(this.getClass());
+    this.loggers = new ArrayList<>(loggers);
+    this.burst = burst;
+    this.intervalSeconds = intervalSeconds;
+    Map<String, Meter> meters = new HashMap<>();
+    for (String loggerName : this.loggers) {
+      meters.put(loggerName, registry.meter(
+          MetricRegistry.name("stampede.logging.suppressed", loggerName)));
+    }
+    this.suppressedMeters = ImmutableMap.copyOf(meters);
+    this.summarizer = Executors.newSingleThreadScheduledExecutor(threadFactory);
+  }
+
+  /**
+   * Adds the rate limit to the current logging configuration and starts logging summaries.
+   */
+  public void start() {
+    Configuration configuration = getContext().getConfiguration();
+    for (String loggerName : loggers) {
+      // Messages of child loggers are counted by the closest logger config that is rate limited
+      LoggerConfig loggerConfig = configuration.getLoggerConfig(loggerName);
+      filters.computeIfAbsent(loggerConfig.getName(), name -> {
+        RateLimitFilter filter = new RateLimitFilter(loggerConfig);
+        loggerConfig.addFilter(filter);
+        return filter;
+      });
+    }
+    getContext().updateLoggers();
+
+    summarizer.scheduleAtFixedRate(this::logSummaries, intervalSeconds, intervalSeconds,
+        TimeUnit.SECONDS);
+  }
+
+  @Override
+  public void close() {
+    summarizer.shutdownNow();
+
+    Configuration configuration = getContext().getConfiguration();
+    for (Map.Entry<String, RateLimitFilter> entry : filters.entrySet()) {
+      configuration.getLoggerConfig(entry.getKey()).removeFilter(entry.getValue());
+    }
+    filters.clear();
+    getContext().updateLoggers();
+
+    logSummaries();
+  }
+
+  private Filter.Result filter(LoggerConfig loggerConfig, LogEvent event) {
+    if (!event.getLevel().isMoreSpecificThan(Level.WARN)) {
+      return Filter.Result.NEUTRAL;
+    }
+    String loggerName = event.getLoggerName();
+    Meter suppressedMeter = getSuppressedMeter(loggerName);
+    if (suppressedMeter == null || loggerName.equals(logger.getName())
+        || !isCountedBy(loggerConfig, event)) {
+      return Filter.Result.NEUTRAL;
+    }
+
+    String text = getText(event);
+    String namespace = getNamespace(event, text);
+    MessageGroup group = new MessageGroup(loggerName, event.getLevel(),
+        getPattern(event, text, namespace), namespace);
+    if (!counts.containsKey(group) && counts.size() >= MAX_GROUPS) {
+      group = new MessageGroup(loggerName, event.getLevel(), OTHER_MESSAGES, null);
+    }
+
+    if (increment(group) <= burst) {
+      return Filter.Result.NEUTRAL;
+    }
+    suppressedMeter.mark();
+    return Filter.Result.DENY;
+  }
+
+  /**
+   * Counts a message of the given group and returns the messages counted on the current
+   * interval, including it.
+   */
+  private long increment(MessageGroup group) {
+    while (true) {
+      AtomicLong count = counts.computeIfAbsent(group, g -> new AtomicLong());
+      long current = count.get();
+      if (current == SUMMARIZED) {
+        // The summarizer is removing it, help it so the next try uses a new counter
+        counts.remove(group, count);
+      } else if (count.compareAndSet(current, current + 1)) {
+        return current + 1;
+      }
+    }
+  }
+
+  private Meter getSuppressedMeter(String loggerName) {
+    Meter result = null;
+    String matched = null;
+    for (Map.Entry<String, Meter> entry : suppressedMeters.entrySet()) {
+      String prefix = entry.getKey();
+      boolean matches = loggerName.equals(prefix)
+          || loggerName.startsWith(prefix) && loggerName.charAt(prefix.length()) == '.';
+      if (matches && (matched == null || prefix.length() > matched.length())) {
+        matched = prefix;
+        result = entry.getValue();
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Returns true if the given logger config is the first rate limited one that receives the
+   * event.
+   *
+   * <p>Additive logger configs pass their events to their parents, which would count them again.
+   */
+  private boolean isCountedBy(LoggerConfig loggerConfig, LogEvent event) {
+    Configuration configuration = getContext().getConfiguration();
+    LoggerConfig current = configuration.getLoggerConfig(event.getLoggerName());
+    while (current != null && !filters.containsKey(current.getName())) {
+      current = current.getParent();
+    }
+    return current == null || current == loggerConfig;
+  }
+
+  void logSummaries() {
+    for (Map.Entry<MessageGroup, AtomicLong> entry : counts.entrySet()) {
+      MessageGroup group = entry.getKey();
+      AtomicLong count = entry.getValue();
+      // Each message is counted either before this or on a new counter, never on both
+      long suppressed = count.getAndSet(SUMMARIZED) - burst;
+      counts.remove(group, count);
+      if (suppressed > 0) {
+        if (group.namespace != null) {
+          logger.log(group.level, "{} repeated {} messages \"{}\" on ns {} from {} were not "
+              + "logged in the last {} seconds", suppressed, group.level, group.pattern,
+              group.namespace, group.loggerName, intervalSeconds);
+        } else {
+          logger.log(group.level, "{} repeated {} messages \"{}\" from {} were not logged in "
+              + "the last {} seconds", suppressed, group.level, group.pattern, group.loggerName,
+              intervalSeconds);
+        }
+      }
+    }
+  }
+
+  private static String getText(LogEvent event) {
+    Message message = event.getMessage();
+    String text = null;
+    if (message instanceof MapMessage) {
+      text = ((MapMessage) message).get("message");
+    }
+    if (text == null) {
+      text = message.getFormattedMessage();
+    }
+    return text;
+  }
+
+  @Nullable
+  private static String getNamespace(LogEvent event, String text) {
+    Message message = event.getMessage();
+    String namespace = null;
+    if (message instanceof MapMessage) {
+      namespace = ((MapMessage) message).get("namespace");
+      if (namespace == null) {
+        namespace = ((MapMessage) message).get("ns");
+      }
+    }
+    if (namespace == null && event.getContextData() != null) {
+      namespace = event.getContextData().getValue("namespace");
+    }
+    if (namespace == null) {
+      Matcher matcher = NAMESPACE.matcher(text);
+      if (matcher.find()) {
+        namespace = matcher.group(1);
+      }
+    }
+    return namespace;
+  }
+
+  private static String getPattern(LogEvent event, String text, @Nullable String namespace) {
+    Message message = event.getMessage();
+    Object[] parameters = message.getParameters();
+    // Reusable messages may not keep their format
+    String pattern = parameters != null && parameters.length > 0 ? message.getFormat() : null;
+    if (pattern == null || message instanceof MapMessage) {
+      pattern = text;
+      if (namespace != null) {
+        pattern = pattern.replace(namespace, "<ns>");
+      }
+      pattern = QUOTED.matcher(pattern).replaceAll("?");
+      pattern = OBJECT_ID.matcher(pattern).replaceAll("#");
+      pattern = NUMBER.matcher(pattern).replaceAll("#");
+    }
+    if (pattern.length() > MAX_TEXT_LENGTH) {
+      pattern = pattern.substring(0, MAX_TEXT_LENGTH) + "...";
+    }
+    return pattern;
+  }
+
+  private static LoggerContext getContext() {
+    return (LoggerContext) LogManager.getContext(false);
+  }
+
+  private static final class MessageGroup {
+
+    private final String loggerName;
+    private final Level level;
+    private final String pattern;
+    @Nullable
+    private final String namespace;
+
+    private MessageGroup(String loggerName, Level level, String pattern,
+        @Nullable String namespace) {
+      this.loggerName = loggerName;
+      this.level = level;
+      this.pattern = pattern;
+      this.namespace = namespace;
+    }
+
+    @Override
+    public int hashCode() {
+      return Objects.hash(loggerName, level, pattern, namespace);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof MessageGroup)) {
+        return false;
+      }
+      MessageGroup other = (MessageGroup) obj;
+      return loggerName.equals(other.loggerName) && level.equals(other.level)
+          && pattern.equals(other.pattern) && Objects.equals(namespace, other.namespace);
+    }
+  }
+
+  private class RateLimitFilter extends AbstractFilter {
+
+    private final LoggerConfig loggerConfig;
+
+    private RateLimitFilter(LoggerConfig loggerConfig) {
+      this.loggerConfig = loggerConfig;
+    }
+
+    @Override
+    public Result filter(LogEvent event) {
+      return RepeatedMessages.this.filter(loggerConfig, event);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+import com.beust.jcommander.JCommander;
+import com.torodb.backend.derby.DerbyDbBackendBundle;
+import com.torodb.backend.derby.driver.DerbyDbBackendConfigBuilder;
+import com.torodb.backend.mysql.MySqlBackendBundle;
+import com.torodb.backend.postgresql.PostgreSqlBackendBundle;
+import com.torodb.stampede.config.model.Config;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ClassLoadingMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.Enumeration;
+import java.util.PropertyResourceBundle;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Starts ToroDB Stampede on an embedded Derby backend, so that the classes loaded by a real
+ * startup can be listed for class data sharing.
+ *
+ * <p>The packaging profiles run it with {@code -XX:DumpLoadedClassList}. It accepts the same
+ * options as {@link Main}. The replication does not finish its startup until it reaches the sync
+ * source, so when the sync source is not reachable the training stops once no class has been
+ * loaded for {@value #SETTLED_MILLIS} milliseconds, which happens after the backend, torod and the
+ * replication have been started and the replication is looking for the sync source, or after
+ * {@value #MAX_TRAINING_SECONDS} seconds. The loaded classes are listed as they are loaded, so the
+ * JVM just exits then.
+ *
+ * <p>Derby is only used to start without a database server. Its classes are not on the
+ * distribution class path, so they are skipped when the archive is dumped. The classes of the
+ * PostgreSQL and MySQL backends and their JDBC drivers, which a production startup uses instead,
+ * are loaded after the training start.
+ */
+public class CdsTraining {
+
+  private static final Logger LOGGER = LogManager.getLogger(CdsTraining.class);
+  private static final long MAX_TRAINING_SECONDS = 60;
+  private static final long SETTLED_MILLIS = 2000;
+  private static final long POLL_MILLIS = 100;
+  private static final String[] JDBC_DRIVERS = {"org.postgresql.Driver",
+      "com.mysql.cj.jdbc.Driver"};
+
+  private CdsTraining() {
+  }
+
+  /**
+   * Starts ToroDB Stampede with the given command line options and exits.
+   */
+  public static void main(String[] args) {
+    int status = 0;
+    try {
+      train(args);
+      loadBackendClasses();
+    } catch (Throwable ex) {
+      LOGGER.error("The training start of ToroDB Stampede failed", ex);
+      status = 1;
+    }
+    LogManager.shutdown();
+    // Backend and replication threads are not stopped when the sync source is not reachable
+    System.exit(status);
+  }
+
+  private static void train(String[] args) throws Exception {
+    CliConfig cliConfig = new CliConfig();
+    new JCommander(cliConfig, PropertyResourceBundle.getBundle("CliMessages"), args);
+    cliConfig.addParams();
+
+    Config config = CliConfigUtils.readConfig(cliConfig);
+    Main.configureLogger(cliConfig, config);
+
+    StampedeConfig stampedeConfig = Main.createStampedeConfig(config, bundleConfig ->
+        new DerbyDbBackendBundle(new DerbyDbBackendConfigBuilder(bundleConfig).build()));
+    StampedeService stampedeService = new StampedeService(stampedeConfig);
+    stampedeService.startAsync();
+    if (!awaitRunningOrSettled(stampedeService)) {
+      LOGGER.info("Stopping the training start, as no more classes are being loaded");
+      return;
+    }
+    stampedeService.stopAsync();
+    stampedeService.awaitTerminated(MAX_TRAINING_SECONDS, TimeUnit.SECONDS);
+  }
+
+  /**
+   * Waits until the service is running or until no class has been loaded for
+   * {@value #SETTLED_MILLIS} milliseconds.
+   *
+   * @return true if the service is running
+   */
+  private static boolean awaitRunningOrSettled(StampedeService stampedeService) {
+    ClassLoadingMXBean classLoading = ManagementFactory.getClassLoadingMXBean();
+    long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(MAX_TRAINING_SECONDS);
+    long loadedClasses = -1;
+    long settledMillis = 0;
+    while (settledMillis < SETTLED_MILLIS && System.nanoTime() < deadline) {
+      try {
+        stampedeService.awaitRunning(POLL_MILLIS, TimeUnit.MILLISECONDS);
+        return true;
+      } catch (TimeoutException ex) {
+        long current = classLoading.getTotalLoadedClassCount();
+        settledMillis = current == loadedClasses ? settledMillis + POLL_MILLIS : 0;
+        loadedClasses = current;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Loads all the classes of the PostgreSQL and MySQL backends and the JDBC drivers they use.
+   */
+  private static void loadBackendClasses() throws IOException {
+    ClassLoader classLoader = CdsTraining.class.getClassLoader();
+    for (Class<?> bundleClass : new Class<?>[] {PostgreSqlBackendBundle.class,
+        MySqlBackendBundle.class}) {
+      File jar = new File(bundleClass.getProtectionDomain().getCodeSource().getLocation()
+          .getPath());
+      if (!jar.isFile()) {
+        continue;
+      }
+      try (JarFile jarFile = new JarFile(jar)) {
+        Enumeration<JarEntry> entries = jarFile.entries();
+        while (entries.hasMoreElements()) {
+          String entryName = entries.nextElement().getName();
+          if (entryName.endsWith(".class")) {
+            loadClass(entryName.substring(0, entryName.length() - ".class".length())
+                .replace('/', '.'), false, classLoader);
+          }
+        }
+      }
+    }
+    for (String driver : JDBC_DRIVERS) {
+      loadClass(driver, true, classLoader);
+    }
+  }
+
+  private static void loadClass(String className, boolean initialize, ClassLoader classLoader) {
+    try {
+      Class.forName(className, initialize, classLoader);
+    } catch (ClassNotFoundException | LinkageError ex) {
+      LOGGER.debug("Class {} could not be loaded", className, ex);
+    }
+  }
+}
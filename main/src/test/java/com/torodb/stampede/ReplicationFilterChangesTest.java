@@ -0,0 +1,135 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.torodb.packaging.config.model.protocol.mongo.FilterList.IndexFilter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+
+public class ReplicationFilterChangesTest {
+
+  private static final Map<String, Map<String, List<IndexFilter>>> NONE = ImmutableMap.of();
+
+  @Test
+  public void testSameFilters() {
+    Map<String, Map<String, List<IndexFilter>>> include = filters("film", "actor", "performer");
+    Map<String, Map<String, List<IndexFilter>>> exclude = filters("film", "draft");
+
+    Assert.assertFalse(ReplicationFilterChanges.includesNewNamespaces(include, exclude, include,
+        exclude));
+  }
+
+  @Test
+  public void testIncludeNewCollection() {
+    Assert.assertTrue(ReplicationFilterChanges.includesNewNamespaces(
+        filters("film", "actor"), NONE, filters("film", "actor", "performer"), NONE));
+  }
+
+  @Test
+  public void testIncludeNewDatabase() {
+    Assert.assertTrue(ReplicationFilterChanges.includesNewNamespaces(
+        filters("film", "actor"), NONE, ImmutableMap.<String, Map<String, List<IndexFilter>>>of(
+            "film", collections("actor"), "music", collections()), NONE));
+  }
+
+  @Test
+  public void testIncludeWholeDatabase() {
+    Assert.assertTrue(ReplicationFilterChanges.includesNewNamespaces(
+        filters("film", "actor"), NONE, filters("film"), NONE));
+  }
+
+  @Test
+  public void testIncludeEverything() {
+    Assert.assertTrue(ReplicationFilterChanges.includesNewNamespaces(
+        filters("film"), NONE, NONE, NONE));
+  }
+
+  @Test
+  public void testIncludeLess() {
+    Assert.assertFalse(ReplicationFilterChanges.includesNewNamespaces(
+        filters("film"), NONE, filters("film", "actor"), NONE));
+    Assert.assertFalse(ReplicationFilterChanges.includesNewNamespaces(
+        NONE, NONE, filters("film"), NONE));
+  }
+
+  @Test
+  public void testExcludeLess() {
+    Assert.assertTrue(ReplicationFilterChanges.includesNewNamespaces(
+        NONE, filters("film", "actor", "performer"), NONE, filters("film", "actor")));
+    Assert.assertTrue(ReplicationFilterChanges.includesNewNamespaces(
+        NONE, filters("film"), NONE, filters("film", "actor")));
+    Assert.assertTrue(ReplicationFilterChanges.includesNewNamespaces(
+        NONE, filters("film"), NONE, NONE));
+  }
+
+  @Test
+  public void testExcludeMore() {
+    Assert.assertFalse(ReplicationFilterChanges.includesNewNamespaces(
+        NONE, filters("film", "actor"), NONE, filters("film", "actor", "performer")));
+    Assert.assertFalse(ReplicationFilterChanges.includesNewNamespaces(
+        NONE, filters("film", "actor"), NONE, filters("film")));
+  }
+
+  @Test
+  public void testIndexChangesAreIgnored() {
+    Map<String, Map<String, List<IndexFilter>>> withIndex = ImmutableMap.of("film",
+        ImmutableMap.of("actor", ImmutableList.of(
+            new IndexFilter("name_1", null, ImmutableMap.of("name", "1")))));
+
+    Assert.assertFalse(ReplicationFilterChanges.includesNewNamespaces(
+        withIndex, NONE, filters("film", "actor"), NONE));
+  }
+
+  @Test
+  public void testHasSameFilters() {
+    Assert.assertTrue(ReplicationFilterChanges.hasSameFilters(
+        filters("film", "actor"), null, filters("film", "actor"), NONE));
+    Assert.assertFalse(ReplicationFilterChanges.hasSameFilters(
+        filters("film", "actor"), NONE, filters("film", "actor", "performer"), NONE));
+    Assert.assertFalse(ReplicationFilterChanges.hasSameFilters(
+        NONE, NONE, NONE, filters("film")));
+  }
+
+  @Test
+  public void testIndexChangesAreNotTheSameFilters() {
+    Map<String, Map<String, List<IndexFilter>>> withIndex = ImmutableMap.of("film",
+        ImmutableMap.of("actor", ImmutableList.of(
+            new IndexFilter("name_1", null, ImmutableMap.of("name", "1")))));
+
+    Assert.assertFalse(ReplicationFilterChanges.hasSameFilters(
+        withIndex, NONE, filters("film", "actor"), NONE));
+  }
+
+  private static Map<String, Map<String, List<IndexFilter>>> filters(String database,
+      String... collections) {
+    return ImmutableMap.of(database, collections(collections));
+  }
+
+  private static Map<String, List<IndexFilter>> collections(String... collections) {
+    ImmutableMap.Builder<String, List<IndexFilter>> builder = ImmutableMap.builder();
+    for (String collection : collections) {
+      builder.put(collection, ImmutableList.of());
+    }
+    return builder.build();
+  }
+}
@@ -29,6 +29,7 @@ import com.torodb.stampede.CliConfig;
 import com.torodb.stampede.CliConfigUtils;
 import com.torodb.stampede.config.model.Config;
 import com.torodb.stampede.config.model.backend.postgres.Postgres;
+import com.torodb.stampede.config.model.logging.AsyncLogging;
 import com.torodb.stampede.config.model.mongo.replication.ShardReplication;
 import org.junit.Assert;
 import org.junit.Test;
@@ -160,6 +161,100 @@ public class ConfigTest {
             logPackage));
   }
 
+  @Test
+  public void testParseWithReloadFiltersParam() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+          "/replication/reloadFilters=true"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    Config config = CliConfigUtils.readConfig(cliConfig);
+
+    Assert.assertTrue("Parameter has different value than that specified", config
+        .getReplication().getReloadFilters());
+  }
+
+  @Test
+  public void testParseWithMetricsEndpointParam() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+          "/metricsEndpoint/enabled=true",
+          "/metricsEndpoint/port=9500"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    Config config = CliConfigUtils.readConfig(cliConfig);
+
+    Assert.assertTrue("Parameter has different value than that specified", config
+        .getMetricsEndpoint().getEnabled());
+    Assert.assertEquals("Parameter has different value than that specified", Integer.valueOf(9500),
+        config.getMetricsEndpoint().getPort());
+  }
+
+  @Test
+  public void testParseWithAsyncLoggingParam() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+          "/logging/async/enabled=true",
+          "/logging/async/queueFullPolicy=block"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    Config config = CliConfigUtils.readConfig(cliConfig);
+
+    Assert.assertTrue("Parameter has different value than that specified", config
+        .getLogging().getAsync().getEnabled());
+    Assert.assertEquals("Parameter has different value than that specified",
+        AsyncLogging.QueueFullPolicy.block, config.getLogging().getAsync().getQueueFullPolicy());
+  }
+
+  @Test
+  public void testParseWithRateLimitParam() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+          "/logging/rateLimit/enabled=true",
+          "/logging/rateLimit/burst=1"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    Config config = CliConfigUtils.readConfig(cliConfig);
+
+    Assert.assertTrue("Parameter has different value than that specified", config
+        .getLogging().getRateLimit().getEnabled());
+    Assert.assertEquals("Parameter has different value than that specified",
+        Integer.valueOf(1), config.getLogging().getRateLimit().getBurst());
+  }
+
+  @Test
+  public void testParseWithThreadsParam() throws Exception {
+    CliConfig cliConfig = new CliConfig() {
+      @Override
+      public List<String> getParams() {
+        String[] params = new String[]{
+          "/threads/virtual=true"
+        };
+        return Arrays.asList(params);
+      }
+    };
+    Config config = CliConfigUtils.readConfig(cliConfig);
+
+    Assert.assertTrue("Parameter has different value than that specified",
+        config.getThreads().getVirtual());
+  }
+
   @Test(expected = IllegalArgumentException.class)
   public void testParseWithPasswordParam() throws Exception {
     CliConfig cliConfig = new CliConfig() {
@@ -0,0 +1,101 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.logging;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.config.DefaultConfiguration;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.message.MapMessage;
+import org.apache.logging.log4j.message.Message;
+import org.apache.logging.log4j.message.SimpleMessage;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class ComponentLevelFilterTest {
+
+  private final Map<String, Level> componentLevels = new HashMap<>();
+  private final Map<String, Level> originalLevels = new HashMap<>();
+  private ComponentLevelFilter filter;
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @Before
+  public void setUp() {
+    filter = new ComponentLevelFilter(new DefaultConfiguration(), componentLevels,
+        originalLevels);
+    // The default configuration only has the root logger
+    originalLevels.put("", Level.WARN);
+  }
+
+  @Test
+  public void testComponentLevel() {
+    componentLevels.put("REPL-s0", Level.DEBUG);
+
+    Assert.assertEquals(Filter.Result.NEUTRAL,
+        filter.filter(event(Level.DEBUG, componentMessage("REPL-s0"))));
+    Assert.assertEquals(Filter.Result.DENY,
+        filter.filter(event(Level.TRACE, componentMessage("REPL-s0"))));
+  }
+
+  @Test
+  public void testComponentWithoutLevelUsesOriginalLevel() {
+    componentLevels.put("REPL-s0", Level.DEBUG);
+
+    Assert.assertEquals(Filter.Result.DENY,
+        filter.filter(event(Level.INFO, componentMessage("REPL-s1"))));
+    Assert.assertEquals(Filter.Result.NEUTRAL,
+        filter.filter(event(Level.WARN, componentMessage("REPL-s1"))));
+  }
+
+  @Test
+  public void testMessageWithoutComponentUsesOriginalLevel() {
+    componentLevels.put("REPL-s0", Level.DEBUG);
+
+    Assert.assertEquals(Filter.Result.DENY,
+        filter.filter(event(Level.DEBUG, new SimpleMessage("message"))));
+    Assert.assertEquals(Filter.Result.NEUTRAL,
+        filter.filter(event(Level.ERROR, new SimpleMessage("message"))));
+  }
+
+  @Test
+  public void testLoggerWithoutOriginalLevel() {
+    originalLevels.clear();
+
+    Assert.assertEquals(Filter.Result.NEUTRAL,
+        filter.filter(event(Level.TRACE, new SimpleMessage("message"))));
+  }
+
+  private static MapMessage componentMessage(String component) {
+    MapMessage message = new MapMessage();
+    message.put(ComponentLevelFilter.COMPONENT_KEY, component);
+    return message;
+  }
+
+  private static LogEvent event(Level level, Message message) {
+    return Log4jLogEvent.newBuilder()
+        .setLoggerName("com.torodb.stampede.Test")
+        .setLevel(level)
+        .setMessage(message)
+        .build();
+  }
+}
@@ -0,0 +1,163 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.logging;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.async.AsyncLoggerConfig;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+public class LogLevelsTest {
+
+  private static final String LOGGER = "com.torodb.stampede.logging.test";
+  private static final long REVERT_MILLIS = 50;
+
+  private LogLevels logLevels = createLogLevels(false);
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @After
+  public void tearDown() {
+    logLevels.close();
+    getContext().reconfigure();
+  }
+
+  @Test
+  public void testSetLevel() {
+    logLevels.setLevel(LOGGER, "debug", 0);
+
+    Assert.assertEquals("DEBUG", logLevels.getLevel(LOGGER));
+    Assert.assertTrue(LogManager.getLogger(LOGGER).isDebugEnabled());
+    Assert.assertTrue(LogManager.getLogger(LOGGER + ".Child").isDebugEnabled());
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void testUnknownLevel() {
+    logLevels.setLevel(LOGGER, "verbose", 0);
+  }
+
+  @Test
+  public void testRevertLevel() throws InterruptedException {
+    String previousLevel = logLevels.getLevel(LOGGER);
+
+    logLevels.setLevel(LOGGER, "TRACE", REVERT_MILLIS);
+
+    Assert.assertEquals("TRACE", logLevels.getLevel(LOGGER));
+    awaitLevel(LOGGER, previousLevel);
+  }
+
+  @Test
+  public void testNewLevelCancelsRevert() throws InterruptedException {
+    logLevels.setLevel(LOGGER, "TRACE", REVERT_MILLIS);
+    logLevels.setLevel(LOGGER, "DEBUG", 0);
+
+    Thread.sleep(REVERT_MILLIS * 4);
+    Assert.assertEquals("DEBUG", logLevels.getLevel(LOGGER));
+  }
+
+  @Test
+  public void testRevertComponentLevel() throws InterruptedException {
+    logLevels.setComponentLevel("REPL-s0", "DEBUG", 0);
+    logLevels.setComponentLevel("REPL-s0", "TRACE", REVERT_MILLIS);
+
+    Assert.assertEquals("TRACE", logLevels.getComponentLevel("REPL-s0"));
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!"DEBUG".equals(logLevels.getComponentLevel("REPL-s0"))
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals("DEBUG", logLevels.getComponentLevel("REPL-s0"));
+  }
+
+  @Test
+  public void testNewComponentLevelCancelsRevert() throws InterruptedException {
+    logLevels.setComponentLevel("REPL-s0", "TRACE", REVERT_MILLIS);
+    logLevels.setComponentLevel("REPL-s0", "DEBUG", 0);
+
+    Thread.sleep(REVERT_MILLIS * 4);
+    Assert.assertEquals("DEBUG", logLevels.getComponentLevel("REPL-s0"));
+  }
+
+  @Test
+  public void testResetCancelsComponentRevert() throws InterruptedException {
+    logLevels.setComponentLevel("REPL-s0", "TRACE", REVERT_MILLIS);
+    logLevels.resetComponentLevel("REPL-s0");
+
+    Thread.sleep(REVERT_MILLIS * 4);
+    Assert.assertNull(logLevels.getComponentLevel("REPL-s0"));
+  }
+
+  @Test
+  public void testComponentLevelKeepsLoggerLevel() {
+    logLevels.setLevel(LOGGER, "WARN", 0);
+    logLevels.setComponentLevel("REPL-s0", "TRACE", 0);
+
+    Assert.assertEquals("WARN", logLevels.getLevel(LOGGER));
+
+    logLevels.resetComponentLevel("REPL-s0");
+    Assert.assertEquals("WARN", logLevels.getLevel(LOGGER));
+    Assert.assertFalse(LogManager.getLogger(LOGGER).isInfoEnabled());
+  }
+
+  @Test
+  public void testSynchronousLoggerIsCreated() {
+    logLevels.setLevel(LOGGER, "DEBUG", 0);
+
+    LoggerConfig loggerConfig = getContext().getConfiguration().getLoggerConfig(LOGGER);
+    Assert.assertEquals(LOGGER, loggerConfig.getName());
+    Assert.assertFalse(loggerConfig instanceof AsyncLoggerConfig);
+  }
+
+  @Test
+  public void testAsynchronousLoggerIsCreated() {
+    AsyncLoggers.enable(1024, false, Level.INFO);
+    logLevels.close();
+    logLevels = createLogLevels(true);
+
+    logLevels.setLevel(LOGGER, "DEBUG", 0);
+
+    LoggerConfig loggerConfig = getContext().getConfiguration().getLoggerConfig(LOGGER);
+    Assert.assertEquals(LOGGER, loggerConfig.getName());
+    Assert.assertTrue(loggerConfig instanceof AsyncLoggerConfig);
+    Assert.assertTrue(LogManager.getLogger(LOGGER).isDebugEnabled());
+  }
+
+  private void awaitLevel(String loggerName, String level) throws InterruptedException {
+    long deadline = System.currentTimeMillis() + 5000;
+    while (!level.equals(logLevels.getLevel(loggerName))
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    Assert.assertEquals(level, logLevels.getLevel(loggerName));
+  }
+
+  private static LogLevels createLogLevels(boolean asyncLoggers) {
+    return new LogLevels(asyncLoggers, Executors.defaultThreadFactory(),
+        clazz -> LogManager.getLogger(clazz), TimeUnit.MILLISECONDS);
+  }
+
+  private static LoggerContext getContext() {
+    return (LoggerContext) LogManager.getContext(false);
+  }
+}
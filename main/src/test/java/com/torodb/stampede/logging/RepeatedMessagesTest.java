@@ -0,0 +1,223 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.logging;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.collect.ImmutableList;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+public class RepeatedMessagesTest {
+
+  private static final String LIMITED_LOGGER = "com.torodb.stampede.logging.test";
+  private static final Pattern SUMMARY = Pattern.compile("^(\\d+) repeated .*");
+
+  private final MetricRegistry registry = new MetricRegistry();
+  private final Logger limitedLogger = LogManager.getLogger(LIMITED_LOGGER);
+  private CapturingAppender appender;
+  private RepeatedMessages repeatedMessages;
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @Before
+  public void setUp() {
+    appender = new CapturingAppender();
+    appender.start();
+    Configuration configuration = getContext().getConfiguration();
+    LoggerConfig loggerConfig = new LoggerConfig(LIMITED_LOGGER, Level.ALL, false);
+    loggerConfig.addAppender(appender, null, null);
+    configuration.addLogger(LIMITED_LOGGER, loggerConfig);
+    LoggerConfig summaryConfig = new LoggerConfig(RepeatedMessages.class.getName(), Level.ALL,
+        false);
+    summaryConfig.addAppender(appender, null, null);
+    configuration.addLogger(RepeatedMessages.class.getName(), summaryConfig);
+    getContext().updateLoggers();
+
+    repeatedMessages = new RepeatedMessages(ImmutableList.of(LIMITED_LOGGER), 2, 3600, registry,
+        Executors.defaultThreadFactory(), clazz -> LogManager.getLogger(clazz));
+    repeatedMessages.start();
+  }
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @After
+  public void tearDown() {
+    repeatedMessages.close();
+    getContext().reconfigure();
+  }
+
+  @Test
+  public void testDuplicateKeyErrorsAreGroupedByNamespace() {
+    for (int i = 0; i < 5; i++) {
+      limitedLogger.error("Duplicate key error on namespace {}: _id {}", "db.col", i);
+    }
+    for (int i = 0; i < 4; i++) {
+      limitedLogger.error("Duplicate key error on namespace {}: _id {}", "db.other", i);
+    }
+
+    Assert.assertEquals(4, getMessages(LIMITED_LOGGER).size());
+
+    repeatedMessages.logSummaries();
+    List<String> summaries = getMessages(RepeatedMessages.class.getName());
+    Assert.assertEquals(2, summaries.size());
+    assertSummary(summaries, "3 repeated ERROR messages \"Duplicate key error on namespace ",
+        "\" on ns db.col from " + LIMITED_LOGGER + " were not logged in the last 3600 seconds");
+    assertSummary(summaries, "2 repeated ERROR messages \"Duplicate key error on namespace ",
+        "\" on ns db.other from " + LIMITED_LOGGER + " were not logged in the last 3600 seconds");
+    Assert.assertEquals(5, registry.meter("stampede.logging.suppressed." + LIMITED_LOGGER)
+        .getCount());
+  }
+
+  @Test
+  public void testPlainMessagesAreMasked() {
+    for (int i = 0; i < 4; i++) {
+      limitedLogger.warn("E11000 duplicate key error collection: db.col index: _id_ dup key: "
+          + "{ : " + i + " } on document '" + i + "'");
+    }
+
+    repeatedMessages.logSummaries();
+    List<String> summaries = getMessages(RepeatedMessages.class.getName());
+    Assert.assertEquals(1, summaries.size());
+    Assert.assertEquals("2 repeated WARN messages \"E11000 duplicate key error collection: <ns> "
+        + "index: _id_ dup key: { : # } on document ?\" on ns db.col from " + LIMITED_LOGGER
+        + " were not logged in the last 3600 seconds", summaries.get(0));
+  }
+
+  @Test
+  public void testSummaryKeepsTheGroupLevel() {
+    for (int i = 0; i < 3; i++) {
+      limitedLogger.warn("Slow write {}", i);
+      limitedLogger.fatal("Backend lost {}", i);
+    }
+
+    repeatedMessages.logSummaries();
+    List<LogEvent> summaries = appender.getEvents(RepeatedMessages.class.getName());
+    Assert.assertEquals(2, summaries.size());
+    for (LogEvent summary : summaries) {
+      String text = summary.getMessage().getFormattedMessage();
+      Assert.assertTrue(text, text.startsWith("1 repeated " + summary.getLevel() + " messages"));
+    }
+  }
+
+  @Test
+  public void testInfoMessagesAreNotLimited() {
+    for (int i = 0; i < 10; i++) {
+      limitedLogger.info("Applied batch {}", i);
+    }
+
+    Assert.assertEquals(10, getMessages(LIMITED_LOGGER).size());
+    repeatedMessages.logSummaries();
+    Assert.assertTrue(getMessages(RepeatedMessages.class.getName()).isEmpty());
+  }
+
+  @Test
+  public void testNewIntervalLogsAgain() {
+    for (int i = 0; i < 3; i++) {
+      limitedLogger.error("Duplicate key error on namespace {}: _id {}", "db.col", i);
+    }
+    repeatedMessages.logSummaries();
+    for (int i = 0; i < 3; i++) {
+      limitedLogger.error("Duplicate key error on namespace {}: _id {}", "db.col", i);
+    }
+
+    Assert.assertEquals(4, getMessages(LIMITED_LOGGER).size());
+  }
+
+  @Test
+  public void testConcurrentSummariesDoNotLoseMessages() throws InterruptedException {
+    int threads = 4;
+    int messagesPerThread = 20000;
+    CountDownLatch done = new CountDownLatch(threads);
+    for (int t = 0; t < threads; t++) {
+      new Thread(() -> {
+        try {
+          for (int i = 0; i < messagesPerThread; i++) {
+            limitedLogger.error("Duplicate key error on namespace {}: _id {}", "db.col", i);
+          }
+        } finally {
+          done.countDown();
+        }
+      }).start();
+    }
+    while (!done.await(1, TimeUnit.MILLISECONDS)) {
+      repeatedMessages.logSummaries();
+    }
+    repeatedMessages.logSummaries();
+
+    long logged = getMessages(LIMITED_LOGGER).size();
+    long summarized = 0;
+    for (String summary : getMessages(RepeatedMessages.class.getName())) {
+      Matcher matcher = SUMMARY.matcher(summary);
+      Assert.assertTrue(summary, matcher.matches());
+      summarized += Long.parseLong(matcher.group(1));
+    }
+    Assert.assertEquals(threads * messagesPerThread, logged + summarized);
+  }
+
+  private static void assertSummary(List<String> summaries, String prefix, String suffix) {
+    Assert.assertTrue(summaries.toString(), summaries.stream()
+        .anyMatch(summary -> summary.startsWith(prefix) && summary.endsWith(suffix)));
+  }
+
+  private List<String> getMessages(String loggerName) {
+    return appender.getEvents(loggerName).stream()
+        .map(event -> event.getMessage().getFormattedMessage())
+        .collect(Collectors.toList());
+  }
+
+  private static LoggerContext getContext() {
+    return (LoggerContext) LogManager.getContext(false);
+  }
+
+  private static class CapturingAppender extends AbstractAppender {
+
+    private final List<LogEvent> events = new CopyOnWriteArrayList<>();
+
+    private CapturingAppender() {
+      super("capturing", null, null);
+    }
+
+    @Override
+    public void append(LogEvent event) {
+      events.add(event.toImmutable());
+    }
+
+    private List<LogEvent> getEvents(String loggerName) {
+      return events.stream()
+          .filter(event -> event.getLoggerName().equals(loggerName))
+          .collect(Collectors.toList());
+    }
+  }
+}
@@ -32,27 +32,71 @@ import com.torodb.kvdocument.types.BooleanType;
 import com.torodb.kvdocument.values.KvBoolean;
 import com.torodb.kvdocument.values.KvValue;
 import com.torodb.mongodb.repl.ConsistencyHandler;
+import com.torodb.stampede.jfr.ConsistencyFlushEvent;
+import com.torodb.stampede.jfr.StampedeEvents;
 import org.apache.logging.log4j.Logger;
 
 import java.util.Optional;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
+import javax.annotation.Nullable;
+
 public abstract class AbstractConsistencyHandler extends IdleTorodbService
     implements ConsistencyHandler {
 
+  /**
+   * The shard id used by handlers that are created without one.
+   */
+  public static final String UNSHARDED_ID = "unsharded";
+
   private boolean consistent;
+  private final String shardId;
   private final BackendService backendService;
   private final Retrier retrier;
+  @Nullable
+  private final Executor lifecycleExecutor;
 
+  /**
+   * Creates a handler whose events are reported on the {@link #UNSHARDED_ID} shard.
+   */
   public AbstractConsistencyHandler(BackendService backendService, Retrier retrier,
       ThreadFactory threadFactory) {
+    this(UNSHARDED_ID, backendService, retrier, threadFactory, null);
+  }
+
+  public AbstractConsistencyHandler(String shardId, BackendService backendService,
+      Retrier retrier, ThreadFactory threadFactory) {
+    this(shardId, backendService, retrier, threadFactory, null);
+  }
+
+  /**
+   * @param lifecycleExecutor the executor where the handler is started and stopped. If null, a
+   *                          new thread is created by the thread factory each time
+   */
+  public AbstractConsistencyHandler(String shardId, BackendService backendService,
+      Retrier retrier, ThreadFactory threadFactory, @Nullable Executor lifecycleExecutor) {
     super(threadFactory);
+    this.shardId = shardId;
     this.backendService = backendService;
     this.retrier = retrier;
+    this.lifecycleExecutor = lifecycleExecutor;
+  }
+
+  public String getShardId() {
+    return shardId;
   }
 
   public abstract MetaInfoKey getConsistencyKey();
 
+  @Override
+  protected Executor executor() {
+    if (lifecycleExecutor != null) {
+      return lifecycleExecutor;
+    }
+    return super.executor();
+  }
+
   @Override
   protected void startUp() throws Exception {
     loadConsistent();
@@ -94,6 +138,11 @@ public abstract class AbstractConsistencyHandler extends IdleTorodbService
   }
 
   private void flushConsistentState() throws RollbackException, RetrierGiveUpException {
+    ConsistencyFlushEvent event = null;
+    if (StampedeEvents.isAvailable()) {
+      event = new ConsistencyFlushEvent();
+      event.begin();
+    }
     retrier.retry(() -> {
       try (WriteDmlTransaction trans = backendService.openWriteTransaction()) {
 
@@ -104,6 +153,11 @@ public abstract class AbstractConsistencyHandler extends IdleTorodbService
       }
       return null;
     });
+    if (event != null) {
+      event.setShardId(shardId);
+      event.setConsistent(consistent);
+      event.commit();
+    }
   }
 
 
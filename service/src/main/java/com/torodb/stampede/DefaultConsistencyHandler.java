@@ -21,8 +21,10 @@ import com.torodb.core.backend.BackendService;
 import com.torodb.core.backend.MetaInfoKey;
 import com.torodb.core.retrier.Retrier;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 @NotThreadSafe
@@ -35,6 +37,16 @@ public class DefaultConsistencyHandler extends AbstractConsistencyHandler {
     super(backendService, retrier, threadFactory);
   }
 
+  public DefaultConsistencyHandler(String shardId, BackendService backendService,
+      Retrier retrier, ThreadFactory threadFactory) {
+    super(shardId, backendService, retrier, threadFactory);
+  }
+
+  public DefaultConsistencyHandler(String shardId, BackendService backendService,
+      Retrier retrier, ThreadFactory threadFactory, @Nullable Executor lifecycleExecutor) {
+    super(shardId, backendService, retrier, threadFactory, lifecycleExecutor);
+  }
+
   @Override
   public MetaInfoKey getConsistencyKey() {
     return CONSISTENCY_KEY;
@@ -0,0 +1,93 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+import com.google.common.base.Preconditions;
+import com.google.common.util.concurrent.Service;
+import com.torodb.mongodb.repl.filters.ReplicationFilters;
+
+import java.util.Optional;
+import java.util.function.Function;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bundle that depends on the replication filters, and that is replaced by a new one each time
+ * the filters are reloaded.
+ */
+@ThreadSafe
+class ReloadableBundle<B extends Service> {
+
+  private final Function<ReplicationFilters, B> bundleFactory;
+  @Nullable
+  private B bundle;
+
+  ReloadableBundle(Function<ReplicationFilters, B> bundleFactory) {
+    this.bundleFactory = bundleFactory;
+  }
+
+  synchronized Optional<B> get() {
+    return Optional.ofNullable(bundle);
+  }
+
+  /**
+   * Creates and starts a bundle that uses the given filters.
+   *
+   * @throws IllegalStateException if the bundle fails to start
+   */
+  synchronized B start(ReplicationFilters filters) {
+    Preconditions.checkState(bundle == null, "The bundle has already been started");
+    B newBundle = bundleFactory.apply(filters);
+    // Set before it is started, so it is stopped by stop() even if it fails to start
+    bundle = newBundle;
+    newBundle.startAsync();
+    newBundle.awaitRunning();
+    return newBundle;
+  }
+
+  /**
+   * Stops the running bundle, executes the given action and starts a new bundle that uses the
+   * given filters.
+   *
+   * @throws IllegalStateException if the new bundle fails to start
+   */
+  synchronized B reload(ReplicationFilters filters, Runnable beforeStart) {
+    Preconditions.checkState(bundle != null, "The bundle has not been started");
+    stop();
+    beforeStart.run();
+    return start(filters);
+  }
+
+  /**
+   * Stops the running bundle, if there is one.
+   */
+  synchronized void stop() {
+    if (bundle == null) {
+      return;
+    }
+    B stopped = bundle;
+    bundle = null;
+    stopped.stopAsync();
+    try {
+      stopped.awaitTerminated();
+    } catch (IllegalStateException ex) {
+      // The bundle had failed, so it is already stopped
+    }
+  }
+}
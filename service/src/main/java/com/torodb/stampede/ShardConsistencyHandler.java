@@ -21,8 +21,10 @@ import com.torodb.core.backend.BackendService;
 import com.torodb.core.backend.MetaInfoKey;
 import com.torodb.core.retrier.Retrier;
 
+import java.util.concurrent.Executor;
 import java.util.concurrent.ThreadFactory;
 
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 
 @NotThreadSafe
@@ -32,7 +34,12 @@ public class ShardConsistencyHandler extends AbstractConsistencyHandler {
 
   ShardConsistencyHandler(String shardId, BackendService backendService,
       Retrier retrier, ThreadFactory threadFactory) {
-    super(backendService, retrier, threadFactory);
+    this(shardId, backendService, retrier, threadFactory, null);
+  }
+
+  ShardConsistencyHandler(String shardId, BackendService backendService,
+      Retrier retrier, ThreadFactory threadFactory, @Nullable Executor lifecycleExecutor) {
+    super(shardId, backendService, retrier, threadFactory, lifecycleExecutor);
     this.consistencyKey = () -> "repl.consistent.shard." + shardId;
   }
 
@@ -25,6 +25,9 @@ import com.torodb.mongodb.repl.ConsistencyHandler;
 import com.torodb.mongodb.repl.filters.ReplicationFilters;
 import com.torodb.mongodb.repl.oplogreplier.offheapbuffer.OffHeapBufferConfig;
 import com.torodb.mongodb.repl.sharding.MongoDbShardingConfig;
+import com.torodb.stampede.metrics.StampedeMetrics;
+import com.torodb.stampede.threads.ThreadPools;
+import com.torodb.stampede.trace.StampedeTracer;
 
 import java.util.Collections;
 import java.util.List;
@@ -40,6 +43,8 @@ public class StampedeConfig {
   private final List<ShardConfigBuilder> shardConfigBuilders;
   private final LoggerFactory lifecycleLoggerFactory;
   private final OffHeapBufferConfig offHeapBufferConfig;
+  private final StampedeMetrics metrics;
+  private final StampedeTracer tracer;
 
   private StampedeConfig(
       Injector essentialInjector,
@@ -47,7 +52,9 @@ public class StampedeConfig {
       ReplicationFilters userReplFilters,
       List<ShardConfigBuilder> shardConfigBuilders,
       LoggerFactory lf,
-      OffHeapBufferConfig offHeapBufferConfig) {
+      OffHeapBufferConfig offHeapBufferConfig,
+      StampedeMetrics metrics,
+      StampedeTracer tracer) {
     this.essentialInjector = essentialInjector;
     this.backendBundleGenerator = backendBundleGenerator;
     this.userReplFilters = userReplFilters;
@@ -55,6 +62,8 @@ public class StampedeConfig {
     this.lifecycleLoggerFactory = lf;
     this.unsharded = false;
     this.offHeapBufferConfig = offHeapBufferConfig;
+    this.metrics = metrics;
+    this.tracer = tracer;
   }
 
   private StampedeConfig(
@@ -63,7 +72,9 @@ public class StampedeConfig {
       ReplicationFilters userReplFilters,
       ShardConfigBuilder shardConfigBuilder,
       LoggerFactory lf,
-      OffHeapBufferConfig offHeapBufferConfig) {
+      OffHeapBufferConfig offHeapBufferConfig,
+      StampedeMetrics metrics,
+      StampedeTracer tracer) {
     this.essentialInjector = essentialInjector;
     this.backendBundleGenerator = backendBundleGenerator;
     this.userReplFilters = userReplFilters;
@@ -71,6 +82,8 @@ public class StampedeConfig {
     this.lifecycleLoggerFactory = lf;
     this.unsharded = true;
     this.offHeapBufferConfig = offHeapBufferConfig;
+    this.metrics = metrics;
+    this.tracer = tracer;
   }
 
   public static StampedeConfig createShardingConfig(
@@ -79,14 +92,18 @@ public class StampedeConfig {
       ReplicationFilters userReplFilters,
       List<ShardConfigBuilder> shardConfigBuilders,
       LoggerFactory lf,
-      OffHeapBufferConfig offHeapBufferConfig) {
+      OffHeapBufferConfig offHeapBufferConfig,
+      StampedeMetrics metrics,
+      StampedeTracer tracer) {
     return new StampedeConfig(
         essentialInjector,
         backendBundleGenerator,
         userReplFilters,
         shardConfigBuilders,
         lf,
-        offHeapBufferConfig);
+        offHeapBufferConfig,
+        metrics,
+        tracer);
   }
 
   public static StampedeConfig createUnshardedConfig(
@@ -95,14 +112,18 @@ public class StampedeConfig {
       ReplicationFilters userReplFilters,
       ShardConfigBuilder shardConfigBuilder,
       LoggerFactory lf,
-      OffHeapBufferConfig offHeapBufferConfig) {
+      OffHeapBufferConfig offHeapBufferConfig,
+      StampedeMetrics metrics,
+      StampedeTracer tracer) {
     return new StampedeConfig(
         essentialInjector,
         backendBundleGenerator,
         userReplFilters,
         shardConfigBuilder,
         lf,
-        offHeapBufferConfig);
+        offHeapBufferConfig,
+        metrics,
+        tracer);
   }
 
   public Injector getEssentialInjector() {
@@ -113,6 +134,10 @@ public class StampedeConfig {
     return getEssentialInjector().getInstance(ThreadFactory.class);
   }
 
+  public ThreadPools getThreadPools() {
+    return getEssentialInjector().getInstance(ThreadPools.class);
+  }
+
   public boolean isUnsharded() {
     return unsharded;
   }
@@ -144,6 +169,14 @@ public class StampedeConfig {
     return offHeapBufferConfig;
   }
 
+  public StampedeMetrics getMetrics() {
+    return metrics;
+  }
+
+  public StampedeTracer getTracer() {
+    return tracer;
+  }
+
   public static interface ShardConfigBuilder {
 
     String getShardId();
@@ -17,6 +17,7 @@
  */
 package com.torodb.stampede;
 
+import com.google.common.base.Preconditions;
 import com.google.common.util.concurrent.AbstractIdleService;
 import com.google.inject.Injector;
 import com.torodb.core.Shutdowner;
@@ -33,9 +34,16 @@ import com.torodb.core.retrier.RetrierGiveUpException;
 import com.torodb.core.supervision.Supervisor;
 import com.torodb.core.supervision.SupervisorDecision;
 import com.torodb.mongodb.repl.ConsistencyHandler;
+import com.torodb.mongodb.repl.filters.ReplicationFilters;
 import com.torodb.mongodb.repl.sharding.MongoDbShardingBundle;
 import com.torodb.mongodb.repl.sharding.MongoDbShardingConfig;
 import com.torodb.mongodb.repl.sharding.MongoDbShardingConfigBuilder;
+import com.torodb.stampede.jfr.DdlEvent;
+import com.torodb.stampede.jfr.StampedeEvents;
+import com.torodb.stampede.metrics.ShardMetrics;
+import com.torodb.stampede.threads.ThreadPools;
+import com.torodb.stampede.trace.Span;
+import com.torodb.stampede.trace.StampedeTracer;
 import com.torodb.torod.TorodBundle;
 import com.torodb.torod.impl.sql.SqlTorodBundle;
 import com.torodb.torod.impl.sql.SqlTorodConfig;
@@ -57,28 +65,31 @@ import java.util.function.Function;
 public class StampedeService extends AbstractIdleService implements Supervisor {
 
   private final Logger logger;
-  private final ThreadFactory threadFactory;
+  private final ThreadPools threadPools;
   private final StampedeConfig stampedeConfig;
   private final Injector essentialInjector;
   private final BundleConfig generalBundleConfig;
   private final Shutdowner shutdowner;
+  private volatile ReplicationFilters replicationFilters;
+  private BackendBundle backendBundle;
+  private TorodBundle torodBundle;
+  private Map<String, ConsistencyHandler> consistencyHandlers;
+  private ReloadableBundle<MongoDbShardingBundle> shardingBundle;
 
   public StampedeService(StampedeConfig stampedeConfig) {
     this.logger = stampedeConfig.getLifecycleLoggerFactory().apply(this.getClass());
     this.stampedeConfig = stampedeConfig;
 
     this.essentialInjector = stampedeConfig.getEssentialInjector();
-    this.threadFactory = essentialInjector.getInstance(ThreadFactory.class);
+    this.threadPools = essentialInjector.getInstance(ThreadPools.class);
     this.generalBundleConfig = new BundleConfigImpl(essentialInjector, this);
     this.shutdowner = essentialInjector.getInstance(Shutdowner.class);
+    this.replicationFilters = stampedeConfig.getUserReplicationFilters();
   }
 
   @Override
   protected Executor executor() {
-    return (Runnable command) -> {
-      Thread thread = threadFactory.newThread(command);
-      thread.start();
-    };
+    return threadPools.getPool(ThreadPools.LIFECYCLE, 1);
   }
 
   @Override
@@ -89,57 +100,175 @@ public class StampedeService extends AbstractIdleService implements Supervisor {
   }
 
   @Override
+  @SuppressWarnings("try")
   protected void startUp() throws Exception {
     logger.info("Starting up ToroDB Stampede");
 
     shutdowner.startAsync();
     shutdowner.awaitRunning();
-    
-    BackendBundle backendBundle = stampedeConfig.getBackendBundleGenerator()
-        .apply(generalBundleConfig);
-    startBundle(backendBundle);
 
-    Map<String, ConsistencyHandler> consistencyHandlers = createConsistencyHandlers(
-        backendBundle,
-        stampedeConfig.getThreadFactory()
-    );
+    stampedeConfig.getMetrics().startReporting();
 
-    resolveInconsistencies(backendBundle, consistencyHandlers);
+    StampedeTracer tracer = stampedeConfig.getTracer();
+    // A disabled tracer has nothing to write. An enabled one is not awaited, as it stops by itself
+    // if its file cannot be written
+    if (tracer.isEnabled()) {
+      tracer.startAsync();
+    }
 
-    TorodBundle torodBundle = createTorodBundle(backendBundle);
-    startBundle(torodBundle);
+    try (Span startupSpan = tracer.startTrace("stampede.startup", null)) {
+      backendBundle = stampedeConfig.getBackendBundleGenerator()
+          .apply(generalBundleConfig);
+      try (Span span = startupSpan.child("backend.start")) {
+        startBundle(backendBundle);
+      }
+
+      try (Span span = startupSpan.child("consistency.load")) {
+        consistencyHandlers = createConsistencyHandlers(
+            backendBundle,
+            stampedeConfig.getThreadFactory(),
+            getConsistencyPool()
+        );
+      }
+
+      try (Span span = startupSpan.child("consistency.resolve")) {
+        resolveInconsistencies(backendBundle, consistencyHandlers);
+      }
+
+      torodBundle = createTorodBundle(backendBundle);
+      try (Span span = startupSpan.child("torod.start")) {
+        startBundle(torodBundle);
+      }
 
-    MongoDbShardingBundle shardingBundle = createShardingBundle(torodBundle, consistencyHandlers);
-    startBundle(shardingBundle);
+      synchronized (this) {
+        // Not added to the shutdowner, as it is replaced on each reload. It is stopped on shutDown
+        shardingBundle = new ReloadableBundle<>(filters ->
+            createShardingBundle(torodBundle, consistencyHandlers, filters));
+        try (Span span = startupSpan.child("repl.start")) {
+          shardingBundle.start(replicationFilters);
+        }
+      }
+    }
 
     logger.info("ToroDB Stampede is now running");
   }
 
+  public ReplicationFilters getReplicationFilters() {
+    return replicationFilters;
+  }
+
+  /**
+   * Replaces the replication filters used by the running replication.
+   *
+   * <p>The current sharding bundle is stopped and a new one that uses the given filters is started
+   * in its place, so the backend and torod bundles are not restarted and each oplog operation is
+   * filtered either by the old filters or by the new ones, never by a mix of them.
+   *
+   * <p>Namespaces that become included would only receive the operations found on the oplog since
+   * the moment the new filters are applied. The initial synchronization cannot be limited to some
+   * namespaces, so when {@code resync} is true all shards are marked as inconsistent and all the
+   * replicated data is dropped before the replication is started again, which then synchronizes
+   * them from scratch. The torod bundle, which caches the metadata of the dropped tables, is
+   * stopped before the drop and a new one is started after it.
+   *
+   * <p>If the replication cannot be started again, ToroDB Stampede is stopped.
+   *
+   * @param resync true if the new filters include namespaces that were not replicated
+   */
+  @SuppressWarnings("try")
+  public synchronized void reloadReplicationFilters(ReplicationFilters newFilters,
+      boolean resync) {
+    Preconditions.checkState(isRunning(), "ToroDB Stampede is not running");
+
+    logger.info("Reloading replication filters");
+    this.replicationFilters = newFilters;
+
+    try (Span reloadSpan = stampedeConfig.getTracer().startTrace("stampede.reload", null)) {
+      shardingBundle.reload(newFilters, () -> {
+        if (resync) {
+          try (Span span = reloadSpan.child("repl.resync")) {
+            resyncShards();
+          }
+        }
+      });
+    } catch (RuntimeException ex) {
+      logger.error("Replication could not be restarted with the new filters. Stopping ToroDB "
+          + "Stampede", ex);
+      stopAsync();
+      throw ex;
+    }
+    logger.info("Replication filters have been reloaded");
+  }
+
+  private void resyncShards() {
+    logger.warn("The new replication filters include namespaces that were not replicated, all "
+        + "shards will be synchronized again");
+    torodBundle.stopAsync();
+    torodBundle.awaitTerminated();
+    try {
+      // Marked first, so they are synchronized again on the next start if this is interrupted
+      for (Map.Entry<String, ConsistencyHandler> entry : consistencyHandlers.entrySet()) {
+        Logger shardLogger = new ComponentLoggerFactory("REPL-" + entry.getKey())
+            .apply(this.getClass());
+        entry.getValue().setConsistent(shardLogger, false);
+      }
+      resolveInconsistencies(backendBundle, consistencyHandlers);
+    } catch (UserException | RetrierGiveUpException ex) {
+      throw new IllegalStateException("Shards could not be marked as inconsistent", ex);
+    }
+    // Loads the metadata again, now without the dropped tables
+    torodBundle = createTorodBundle(backendBundle);
+    startBundle(torodBundle);
+  }
+
   @Override
+  @SuppressWarnings("try")
   protected void shutDown() throws Exception {
     logger.info("Shutting down ToroDB Stampede");
-    if (shutdowner != null) {
-      shutdowner.stopAsync();
-      shutdowner.awaitTerminated();
+    try (Span shutdownSpan = stampedeConfig.getTracer().startTrace("stampede.shutdown", null)) {
+      synchronized (this) {
+        if (shardingBundle != null) {
+          try (Span span = shutdownSpan.child("repl.stop")) {
+            shardingBundle.stop();
+          }
+        }
+      }
+      if (shutdowner != null) {
+        try (Span span = shutdownSpan.child("bundles.stop")) {
+          shutdowner.stopAsync();
+          shutdowner.awaitTerminated();
+        }
+      }
     }
+    stampedeConfig.getMetrics().stopReporting();
+    stampedeConfig.getTracer().stopAsync();
+    stampedeConfig.getTracer().awaitTerminated();
     logger.info("ToroDB Stampede has been shutted down");
   }
 
+  private Executor getConsistencyPool() {
+    int shards = stampedeConfig.getShardConfigBuilders().size();
+    int threads = Math.max(1, Math.min(shards, Runtime.getRuntime().availableProcessors()));
+    return threadPools.getPool(ThreadPools.CONSISTENCY, threads);
+  }
+
   private Map<String, ConsistencyHandler> createConsistencyHandlers(BackendBundle backendBundle,
-      ThreadFactory threadFactory) {
+      ThreadFactory threadFactory, Executor lifecycleExecutor) {
     Retrier retrier = essentialInjector.getInstance(Retrier.class);
     BackendService backendService = backendBundle.getExternalInterface().getBackendService();
 
     Function<String, ConsistencyHandler> chSupplier;
     if (stampedeConfig.getShardConfigBuilders().size() == 1) {
       chSupplier = (shardId) -> new DefaultConsistencyHandler(
+          shardId,
           backendService, 
           retrier, 
-          threadFactory
+          threadFactory,
+          lifecycleExecutor
       );
     } else {
       chSupplier = (shardId) -> new ShardConsistencyHandler(
-          shardId, backendService, retrier, threadFactory
+          shardId, backendService, retrier, threadFactory, lifecycleExecutor
       );
     }
 
@@ -153,6 +282,10 @@ public class StampedeService extends AbstractIdleService implements Supervisor {
           consistencyHandler.startAsync();
           consistencyHandler.awaitRunning();
 
+          ShardMetrics shardMetrics = stampedeConfig.getMetrics().getShardMetrics(shardId);
+          shardMetrics.registerConsistency(consistencyHandler);
+          shardMetrics.registerReplication(stampedeConfig.isUnsharded());
+
           result.put(shardId, consistencyHandler);
         });
 
@@ -168,7 +301,7 @@ public class StampedeService extends AbstractIdleService implements Supervisor {
   }
 
   private MongoDbShardingBundle createShardingBundle(TorodBundle torodBundle,
-      Map<String, ConsistencyHandler> consistencyHandler) {
+      Map<String, ConsistencyHandler> consistencyHandler, ReplicationFilters replFilters) {
 
     MongoDbShardingConfigBuilder configBuilder;
     if (stampedeConfig.isUnsharded()) {
@@ -178,7 +311,7 @@ public class StampedeService extends AbstractIdleService implements Supervisor {
     }
 
     configBuilder.setTorodBundle(torodBundle)
-        .setUserReplFilter(stampedeConfig.getUserReplicationFilters())
+        .setUserReplFilter(replFilters)
         .setLifecycleLoggerFactory(stampedeConfig.getLifecycleLoggerFactory())
         .setOffHeapBufferConfig(stampedeConfig.getOffHeapBufferConfig());
 
@@ -202,11 +335,22 @@ public class StampedeService extends AbstractIdleService implements Supervisor {
     shardingConfBuilder.addShard(shardConfig);
   }
 
-  private void dropUserData(BackendBundle backendBundle) throws UserException {
+  private void dropUserData(BackendBundle backendBundle, String inconsistentShard)
+      throws UserException {
     BackendService backendService = backendBundle.getExternalInterface().getBackendService();
+    DdlEvent event = null;
+    if (StampedeEvents.isAvailable()) {
+      event = new DdlEvent();
+      event.begin();
+    }
     try (DdlOperationExecutor ddlEx = backendService.openDdlOperationExecutor()) {
       ddlEx.dropUserData();
     }
+    if (event != null) {
+      event.setShardId(inconsistentShard);
+      event.setOperation("dropUserData");
+      event.commit();
+    }
   }
 
   private void startBundle(Bundle<?> bundle) {
@@ -231,7 +375,7 @@ public class StampedeService extends AbstractIdleService implements Supervisor {
           inconsistentShard.orElse("unknown")
       );
       logger.warn("Dropping user data.");
-      dropUserData(backendBundle);
+      dropUserData(backendBundle, inconsistentShard.get());
 
       for (Map.Entry<String, ConsistencyHandler> entry : consistencyHandlers.entrySet()) {
         String shardId = entry.getKey();
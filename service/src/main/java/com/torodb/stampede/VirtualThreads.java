@@ -0,0 +1,90 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Optional;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Creates virtual threads on the JDKs that support them.
+ *
+ * <p>Stampede is compiled for Java 8, so the virtual thread API is looked up by reflection. When
+ * it is not available (older JDKs or, on JDK 19 and 20, when preview features are not enabled)
+ * {@link #isSupported()} returns false and {@link #newThreadFactory(String)} returns an empty
+ * optional.
+ */
+public class VirtualThreads {
+
+  private static final MethodHandle OF_VIRTUAL;
+  private static final MethodHandle NAME;
+  private static final MethodHandle FACTORY;
+
+  static {
+    MethodHandle ofVirtual = null;
+    MethodHandle name = null;
+    MethodHandle factory = null;
+    try {
+      MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+      Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+      Class<?> virtualBuilderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+      ofVirtual = lookup.findStatic(Thread.class, "ofVirtual",
+          MethodType.methodType(virtualBuilderClass));
+      name = lookup.findVirtual(builderClass, "name",
+          MethodType.methodType(builderClass, String.class, long.class));
+      factory = lookup.findVirtual(builderClass, "factory",
+          MethodType.methodType(ThreadFactory.class));
+      // Fails when virtual threads are a preview feature that has not been enabled
+      ofVirtual.invoke();
+    } catch (Throwable ex) {
+      ofVirtual = null;
+    }
+    OF_VIRTUAL = ofVirtual;
+    NAME = name;
+    FACTORY = factory;
+  }
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * Returns true if this JVM can create virtual threads.
+   */
+  public static boolean isSupported() {
+    return OF_VIRTUAL != null;
+  }
+
+  /**
+   * Returns a factory of virtual threads whose names are the given prefix followed by a sequence
+   * number, or an empty optional if virtual threads are not {@link #isSupported() supported}.
+   */
+  public static Optional<ThreadFactory> newThreadFactory(String namePrefix) {
+    if (!isSupported()) {
+      return Optional.empty();
+    }
+    try {
+      Object builder = OF_VIRTUAL.invoke();
+      builder = NAME.invoke(builder, namePrefix, 0L);
+      return Optional.of((ThreadFactory) FACTORY.invoke(builder));
+    } catch (Throwable ex) {
+      throw new IllegalStateException("Virtual threads could not be created", ex);
+    }
+  }
+}
@@ -0,0 +1,38 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+@Name("com.torodb.stampede.Ddl")
+@Label("DDL Execution")
+@Category({"ToroDB Stampede", "Backend"})
+@Description("A DDL operation executed on the backend, tagged with the inconsistent shard that "
+    + "caused it")
+public class DdlEvent extends StampedeEvent {
+
+  @Label("Operation")
+  private String operation;
+
+  public void setOperation(String operation) {
+    this.operation = operation;
+  }
+}
@@ -0,0 +1,43 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.StackTrace;
+
+/**
+ * Base of the Java Flight Recorder events emitted by ToroDB Stampede.
+ *
+ * <p>Events are not created unless {@link StampedeEvents#isAvailable()} returns true, so
+ * ToroDB Stampede can still run on JVMs that do not include the {@code jdk.jfr} module. Stack
+ * traces are not recorded, as consistency flushes are emitted on the replication path.
+ */
+@Category({"ToroDB Stampede", "Replication"})
+@StackTrace(false)
+public abstract class StampedeEvent extends Event {
+
+  // JFR ignores the private fields declared on event superclasses
+  @Label("Shard")
+  protected String shardId;
+
+  public void setShardId(String shardId) {
+    this.shardId = shardId;
+  }
+}
@@ -0,0 +1,45 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.jfr;
+
+/**
+ * Utility methods related to the ToroDB Stampede {@link StampedeEvent JFR events}.
+ */
+public class StampedeEvents {
+
+  private static final boolean AVAILABLE = isJfrPresent();
+
+  private StampedeEvents() {
+  }
+
+  /**
+   * Returns true iff the JVM includes the Java Flight Recorder API, so events can be created.
+   */
+  public static boolean isAvailable() {
+    return AVAILABLE;
+  }
+
+  private static boolean isJfrPresent() {
+    try {
+      Class.forName("jdk.jfr.Event", false, StampedeEvents.class.getClassLoader());
+      return true;
+    } catch (ClassNotFoundException | LinkageError ex) {
+      return false;
+    }
+  }
+}
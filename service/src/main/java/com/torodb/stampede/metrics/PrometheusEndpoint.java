@@ -0,0 +1,136 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.metrics;
+
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import com.torodb.core.logging.LoggerFactory;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * An embedded HTTP server that serves all metrics in the Prometheus text format on
+ * {@code /metrics}.
+ *
+ * <p>Requests are served by a single thread that reuses the same buffers on each scrape.
+ */
+public class PrometheusEndpoint extends AbstractIdleService {
+
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  private final Logger logger;
+  private final InetSocketAddress address;
+  private final ThreadFactory threadFactory;
+  private final PrometheusExporter exporter;
+  private final StringBuilder textBuffer = new StringBuilder(64 * 1024);
+  private byte[] byteBuffer = new byte[64 * 1024];
+  private HttpServer server;
+  private ExecutorService executor;
+
+  public PrometheusEndpoint(StampedeMetrics metrics, InetSocketAddress address,
+      ThreadFactory threadFactory, LoggerFactory loggerFactory) {
+    this.logger = loggerFactory.apply(this.getClass());
+    this.address = address;
+    this.threadFactory = threadFactory;
+    this.exporter = new PrometheusExporter(metrics.getRegistry(), metrics.getEngineRegistry());
+  }
+
+  @Override
+  protected void startUp() throws Exception {
+    executor = Executors.newSingleThreadExecutor(threadFactory);
+    server = HttpServer.create(address, 0);
+    server.setExecutor(executor);
+    server.createContext("/metrics", this::handle);
+    server.start();
+    logger.info("Serving metrics on http://{}:{}/metrics", address.getHostString(),
+        server.getAddress().getPort());
+  }
+
+  @Override
+  protected void shutDown() throws Exception {
+    server.stop(0);
+    executor.shutdown();
+    exporter.close();
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      if (!"GET".equals(exchange.getRequestMethod())) {
+        exchange.sendResponseHeaders(405, -1);
+        return;
+      }
+      // Rendered before anything is sent, so a failure can still be reported as an error
+      int length;
+      try {
+        length = render();
+      } catch (RuntimeException ex) {
+        logger.warn("Error while serving metrics", ex);
+        exchange.sendResponseHeaders(500, -1);
+        return;
+      }
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, length);
+      try (OutputStream body = exchange.getResponseBody()) {
+        body.write(byteBuffer, 0, length);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  /**
+   * Writes all metrics on the byte buffer as UTF-8 and returns the number of written bytes.
+   */
+  private int render() {
+    textBuffer.setLength(0);
+    exporter.write(textBuffer);
+
+    int length = 0;
+    for (int i = 0; i < textBuffer.length(); i++) {
+      if (byteBuffer.length - length < 4) {
+        byteBuffer = Arrays.copyOf(byteBuffer, byteBuffer.length * 2);
+      }
+      char c = textBuffer.charAt(i);
+      if (c < 0x80) {
+        byteBuffer[length++] = (byte) c;
+      } else if (c < 0x800) {
+        byteBuffer[length++] = (byte) (0xC0 | (c >> 6));
+        byteBuffer[length++] = (byte) (0x80 | (c & 0x3F));
+      } else if (Character.isHighSurrogate(c) && i + 1 < textBuffer.length()) {
+        int codePoint = Character.toCodePoint(c, textBuffer.charAt(++i));
+        byteBuffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+        byteBuffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+        byteBuffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+        byteBuffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+      } else {
+        byteBuffer[length++] = (byte) (0xE0 | (c >> 12));
+        byteBuffer[length++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+        byteBuffer[length++] = (byte) (0x80 | (c & 0x3F));
+      }
+    }
+    return length;
+  }
+}
@@ -0,0 +1,610 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.metrics;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metered;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.MetricRegistryListener;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanServer;
+import javax.management.MBeanServerDelegate;
+import javax.management.MBeanServerNotification;
+import javax.management.Notification;
+import javax.management.NotificationListener;
+import javax.management.ObjectName;
+
+/**
+ * Writes metrics using the Prometheus text exposition format.
+ *
+ * <p>The exported metrics are the ones registered on the {@link StampedeMetrics}, the ones the
+ * engine registers on its own registry (the ones reported on the {@code com.torodb.metrics} JMX
+ * domain), the Flexy-pool metrics reported through JMX and the JVM memory, garbage collector and
+ * buffer pool metrics.
+ *
+ * <p>Engine metric names are made of key and value pairs, like
+ * {@code type.replication.shard.s1.level2.OplogApplier.level3.applied}. They are exported with the
+ * {@code torodb} prefix followed by the values of the {@code type} and {@code level} keys, and any
+ * other key, like {@code shard}, is exported as a label, so the previous one is exported as
+ * {@code torodb_replication_OplogApplier_applied_total{shard="s1"}}.
+ *
+ * <p>Metric names, JMX object names and attribute lists are translated when metrics are registered
+ * and cached, so each write only reads the current values. The registry and the MBean server are
+ * not queried again unless a metric or a Flexy-pool MBean is added or removed.
+ *
+ * <p>{@link #close()} must be called to stop listening for new metrics.
+ */
+@NotThreadSafe
+public class PrometheusExporter implements AutoCloseable {
+
+  private static final String FLEXY_POOL_DOMAIN_PREFIX = "com.vladmihalcea.flexypool";
+  private static final double NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+  private static final double MILLIS_PER_SECOND = TimeUnit.SECONDS.toMillis(1);
+
+  private final MetricRegistry registry;
+  private final MetricRegistry engineRegistry;
+  private final MBeanServer mbeanServer;
+  private final MemoryMXBean memoryBean;
+  private final List<GarbageCollectorMXBean> gcBeans;
+  private final List<BufferPoolMXBean> bufferPoolBeans;
+  private final ObjectName flexyPoolPattern;
+  private final RegistryListener registryListener = new RegistryListener(false);
+  private final RegistryListener engineListener = new RegistryListener(true);
+  private final List<RegistryMetric> family = new ArrayList<>();
+  private final NotificationListener mbeanListener = this::onMBeanNotification;
+  private volatile boolean flexyPoolChanged = true;
+  private Map<String, List<JmxMetric>> flexyPoolMetrics = Collections.emptyMap();
+
+  public PrometheusExporter(MetricRegistry registry, MetricRegistry engineRegistry) {
+    this(registry, engineRegistry, ManagementFactory.getPlatformMBeanServer());
+  }
+
+  PrometheusExporter(MetricRegistry registry, MetricRegistry engineRegistry,
+      MBeanServer mbeanServer) {
+    this.registry = registry;
+    this.engineRegistry = engineRegistry;
+    this.mbeanServer = mbeanServer;
+    this.memoryBean = ManagementFactory.getMemoryMXBean();
+    this.gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
+    this.bufferPoolBeans = ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class);
+    try {
+      this.flexyPoolPattern = new ObjectName(FLEXY_POOL_DOMAIN_PREFIX + "*:*");
+      mbeanServer.addNotificationListener(MBeanServerDelegate.DELEGATE_NAME, mbeanListener, null,
+          null);
+    } catch (JMException ex) {
+      throw new AssertionError("Could not listen to the MBean server", ex);
+    }
+    registry.addListener(registryListener);
+    engineRegistry.addListener(engineListener);
+  }
+
+  /**
+   * Appends all metrics to the given builder.
+   */
+  public void write(StringBuilder out) {
+    writeRegistry(out, registryListener.metrics);
+    writeRegistry(out, engineListener.metrics);
+    writeFlexyPool(out);
+    writeJvm(out);
+  }
+
+  @Override
+  public void close() {
+    registry.removeListener(registryListener);
+    engineRegistry.removeListener(engineListener);
+    try {
+      mbeanServer.removeNotificationListener(MBeanServerDelegate.DELEGATE_NAME, mbeanListener);
+    } catch (JMException ex) {
+      throw new IllegalStateException("Could not stop listening to the MBean server", ex);
+    }
+  }
+
+  /**
+   * Writes the given metrics, that must be sorted by their exported name, so all the metrics that
+   * share a name are written together after a single type line.
+   */
+  private void writeRegistry(StringBuilder out, Map<String, RegistryMetric> metrics) {
+    for (RegistryMetric registryMetric : metrics.values()) {
+      if (!family.isEmpty() && !family.get(0).name.equals(registryMetric.name)) {
+        writeFamily(out);
+      }
+      family.add(registryMetric);
+    }
+    if (!family.isEmpty()) {
+      writeFamily(out);
+    }
+  }
+
+  private void writeFamily(StringBuilder out) {
+    RegistryMetric first = family.get(0);
+    Metric firstMetric = first.metric;
+    if (firstMetric instanceof Gauge) {
+      boolean typed = false;
+      for (RegistryMetric registryMetric : family) {
+        if (registryMetric.metric instanceof Gauge) {
+          Object value = ((Gauge) registryMetric.metric).getValue();
+          if (value instanceof Number || value instanceof Boolean) {
+            if (!typed) {
+              writeType(out, first.name, "gauge");
+              typed = true;
+            }
+            writeRegistrySample(out, registryMetric.name, registryMetric.labels, null, null,
+                toDouble(value));
+          }
+        }
+      }
+    } else if (firstMetric instanceof Counter) {
+      writeType(out, first.name, "gauge");
+      for (RegistryMetric registryMetric : family) {
+        if (registryMetric.metric instanceof Counter) {
+          writeRegistrySample(out, registryMetric.name, registryMetric.labels, null, null,
+              ((Counter) registryMetric.metric).getCount());
+        }
+      }
+    } else if (firstMetric instanceof Meter) {
+      writeType(out, first.totalName, "counter");
+      for (RegistryMetric registryMetric : family) {
+        if (registryMetric.metric instanceof Meter) {
+          long count = ((Meter) registryMetric.metric).getCount();
+          writeRegistrySample(out, registryMetric.totalName, registryMetric.labels, null, null,
+              count);
+        }
+      }
+      writeRates(out, Meter.class);
+    } else if (firstMetric instanceof Histogram) {
+      writeType(out, first.summaryName, "summary");
+      for (RegistryMetric registryMetric : family) {
+        if (registryMetric.metric instanceof Histogram) {
+          Histogram histogram = (Histogram) registryMetric.metric;
+          writeSummary(out, registryMetric, histogram.getSnapshot(), histogram.getCount(), 1);
+        }
+      }
+    } else if (firstMetric instanceof Timer) {
+      writeType(out, first.summaryName, "summary");
+      for (RegistryMetric registryMetric : family) {
+        if (registryMetric.metric instanceof Timer) {
+          Timer timer = (Timer) registryMetric.metric;
+          writeSummary(out, registryMetric, timer.getSnapshot(), timer.getCount(),
+              NANOS_PER_SECOND);
+        }
+      }
+      writeRates(out, Timer.class);
+    }
+    family.clear();
+  }
+
+  private void writeRates(StringBuilder out, Class<? extends Metered> meteredClass) {
+    writeType(out, family.get(0).rateName, "gauge");
+    for (RegistryMetric registryMetric : family) {
+      if (meteredClass.isInstance(registryMetric.metric)) {
+        Metered metered = (Metered) registryMetric.metric;
+        String rateName = registryMetric.rateName;
+        String labels = registryMetric.labels;
+        writeRegistrySample(out, rateName, labels, "window", "1m",
+            metered.getOneMinuteRate());
+        writeRegistrySample(out, rateName, labels, "window", "5m",
+            metered.getFiveMinuteRate());
+        writeRegistrySample(out, rateName, labels, "window", "15m",
+            metered.getFifteenMinuteRate());
+      }
+    }
+  }
+
+  private void writeSummary(StringBuilder out, RegistryMetric registryMetric, Snapshot snapshot,
+      long count, double unitDivisor) {
+    String name = registryMetric.summaryName;
+    String labels = registryMetric.labels;
+    writeRegistrySample(out, name, labels, "quantile", "0.5",
+        snapshot.getMedian() / unitDivisor);
+    writeRegistrySample(out, name, labels, "quantile", "0.75",
+        snapshot.get75thPercentile() / unitDivisor);
+    writeRegistrySample(out, name, labels, "quantile", "0.95",
+        snapshot.get95thPercentile() / unitDivisor);
+    writeRegistrySample(out, name, labels, "quantile", "0.99",
+        snapshot.get99thPercentile() / unitDivisor);
+    writeRegistrySample(out, name, labels, "quantile", "0.999",
+        snapshot.get999thPercentile() / unitDivisor);
+    // Dropwizard does not keep the sum of all observations, so it is estimated with the mean of
+    // the sampled ones
+    writeRegistrySample(out, registryMetric.sumName, labels, null, null,
+        snapshot.getMean() * count / unitDivisor);
+    writeRegistrySample(out, registryMetric.countName, labels, null, null, count);
+  }
+
+  private void writeFlexyPool(StringBuilder out) {
+    if (flexyPoolChanged) {
+      flexyPoolChanged = false;
+      flexyPoolMetrics = createJmxMetrics(mbeanServer.queryNames(flexyPoolPattern, null));
+    }
+    for (Map.Entry<String, List<JmxMetric>> entry : flexyPoolMetrics.entrySet()) {
+      String name = entry.getKey();
+      writeType(out, name, "gauge");
+      for (JmxMetric jmxMetric : entry.getValue()) {
+        AttributeList values;
+        try {
+          values = mbeanServer.getAttributes(jmxMetric.objectName, jmxMetric.attributes);
+        } catch (JMException ex) {
+          continue;
+        }
+        for (Attribute attribute : values.asList()) {
+          Object value = attribute.getValue();
+          if (value instanceof Number) {
+            writeSample(out, name, "pool", jmxMetric.pool, "stat", attribute.getName(),
+                ((Number) value).doubleValue());
+          }
+        }
+      }
+    }
+  }
+
+  private void onMBeanNotification(Notification notification, Object handback) {
+    if (notification instanceof MBeanServerNotification) {
+      ObjectName name = ((MBeanServerNotification) notification).getMBeanName();
+      if (name.getDomain().startsWith(FLEXY_POOL_DOMAIN_PREFIX)) {
+        flexyPoolChanged = true;
+      }
+    }
+  }
+
+  private Map<String, List<JmxMetric>> createJmxMetrics(Set<ObjectName> objectNames) {
+    Map<String, List<JmxMetric>> result = new TreeMap<>();
+    for (ObjectName objectName : objectNames) {
+      String metricName = objectName.getKeyProperty("name");
+      if (metricName == null) {
+        continue;
+      }
+      String[] attributes;
+      try {
+        attributes = Arrays.stream(mbeanServer.getMBeanInfo(objectName).getAttributes())
+            .filter(this::isNumericType)
+            .map(MBeanAttributeInfo::getName)
+            .toArray(String[]::new);
+      } catch (JMException ex) {
+        continue;
+      }
+      String domain = objectName.getDomain();
+      String pool = domain.substring(domain.lastIndexOf('.') + 1);
+      result.computeIfAbsent("flexypool_" + sanitize(metricName), name -> new ArrayList<>())
+          .add(new JmxMetric(objectName, pool, attributes));
+    }
+    return result;
+  }
+
+  private boolean isNumericType(MBeanAttributeInfo info) {
+    switch (info.getType()) {
+      case "long":
+      case "int":
+      case "double":
+      case "float":
+      case "java.lang.Long":
+      case "java.lang.Integer":
+      case "java.lang.Double":
+      case "java.lang.Float":
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  private void writeJvm(StringBuilder out) {
+    MemoryUsage heap = memoryBean.getHeapMemoryUsage();
+    MemoryUsage nonHeap = memoryBean.getNonHeapMemoryUsage();
+    writeType(out, "jvm_memory_bytes_used", "gauge");
+    writeSample(out, "jvm_memory_bytes_used", "area", "heap", heap.getUsed());
+    writeSample(out, "jvm_memory_bytes_used", "area", "nonheap", nonHeap.getUsed());
+    writeType(out, "jvm_memory_bytes_committed", "gauge");
+    writeSample(out, "jvm_memory_bytes_committed", "area", "heap", heap.getCommitted());
+    writeSample(out, "jvm_memory_bytes_committed", "area", "nonheap", nonHeap.getCommitted());
+
+    writeType(out, "jvm_gc_collection_seconds", "summary");
+    for (GarbageCollectorMXBean gcBean : gcBeans) {
+      writeSample(out, "jvm_gc_collection_seconds_count", "gc", gcBean.getName(),
+          gcBean.getCollectionCount());
+      writeSample(out, "jvm_gc_collection_seconds_sum", "gc", gcBean.getName(),
+          gcBean.getCollectionTime() / MILLIS_PER_SECOND);
+    }
+
+    writeType(out, "jvm_buffer_pool_used_bytes", "gauge");
+    for (BufferPoolMXBean poolBean : bufferPoolBeans) {
+      writeSample(out, "jvm_buffer_pool_used_bytes", "pool", poolBean.getName(),
+          poolBean.getMemoryUsed());
+    }
+    writeType(out, "jvm_buffer_pool_capacity_bytes", "gauge");
+    for (BufferPoolMXBean poolBean : bufferPoolBeans) {
+      writeSample(out, "jvm_buffer_pool_capacity_bytes", "pool", poolBean.getName(),
+          poolBean.getTotalCapacity());
+    }
+    writeType(out, "jvm_buffer_pool_used_buffers", "gauge");
+    for (BufferPoolMXBean poolBean : bufferPoolBeans) {
+      writeSample(out, "jvm_buffer_pool_used_buffers", "pool", poolBean.getName(),
+          poolBean.getCount());
+    }
+  }
+
+  private static void writeType(StringBuilder out, String name, String type) {
+    out.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static void writeSample(StringBuilder out, String name, String labelName,
+      String labelValue, double value) {
+    writeSample(out, name, labelName, labelValue, null, null, value);
+  }
+
+  private static void writeSample(StringBuilder out, String name, String labelName,
+      String labelValue, String label2Name, String label2Value, double value) {
+    out.append(name);
+    if (labelName != null) {
+      out.append('{');
+      appendLabel(out, labelName, labelValue);
+      if (label2Name != null) {
+        out.append(',');
+        appendLabel(out, label2Name, label2Value);
+      }
+      out.append('}');
+    }
+    appendValue(out, value);
+  }
+
+  /**
+   * Writes a sample of a registry metric, whose labels are already rendered, with an optional
+   * additional label.
+   */
+  private static void writeRegistrySample(StringBuilder out, String name,
+      @Nullable String labels, @Nullable String labelName, @Nullable String labelValue,
+      double value) {
+    out.append(name);
+    if (labels != null || labelName != null) {
+      out.append('{');
+      if (labels != null) {
+        out.append(labels);
+      }
+      if (labelName != null) {
+        if (labels != null) {
+          out.append(',');
+        }
+        appendLabel(out, labelName, labelValue);
+      }
+      out.append('}');
+    }
+    appendValue(out, value);
+  }
+
+  private static void appendValue(StringBuilder out, double value) {
+    out.append(' ');
+    if (Double.isNaN(value)) {
+      out.append("NaN");
+    } else if (Double.isInfinite(value)) {
+      out.append(value > 0 ? "+Inf" : "-Inf");
+    } else if (value == (long) value) {
+      out.append((long) value);
+    } else {
+      out.append(value);
+    }
+    out.append('\n');
+  }
+
+  private static void appendLabel(StringBuilder out, String name, String value) {
+    out.append(name).append("=\"");
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          out.append("\\\\");
+          break;
+        case '"':
+          out.append("\\\"");
+          break;
+        case '\n':
+          out.append("\\n");
+          break;
+        default:
+          out.append(c);
+      }
+    }
+    out.append('"');
+  }
+
+  private static double toDouble(Object value) {
+    if (value instanceof Boolean) {
+      return ((Boolean) value) ? 1 : 0;
+    }
+    return ((Number) value).doubleValue();
+  }
+
+  private static String sanitize(String name) {
+    StringBuilder sb = new StringBuilder(name.length());
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == ':'
+          || (c >= '0' && c <= '9' && i > 0)) {
+        sb.append(c);
+      } else {
+        sb.append('_');
+      }
+    }
+    return sb.toString();
+  }
+
+  private class RegistryListener extends MetricRegistryListener.Base {
+
+    /**
+     * The metrics sorted by their exported name and then by their registry name.
+     */
+    private final ConcurrentSkipListMap<String, RegistryMetric> metrics =
+        new ConcurrentSkipListMap<>();
+    private final boolean engine;
+
+    public RegistryListener(boolean engine) {
+      this.engine = engine;
+    }
+
+    @Override
+    public void onGaugeAdded(String name, Gauge<?> gauge) {
+      add(name, gauge);
+    }
+
+    @Override
+    public void onGaugeRemoved(String name) {
+      remove(name);
+    }
+
+    @Override
+    public void onCounterAdded(String name, Counter counter) {
+      add(name, counter);
+    }
+
+    @Override
+    public void onCounterRemoved(String name) {
+      remove(name);
+    }
+
+    @Override
+    public void onHistogramAdded(String name, Histogram histogram) {
+      add(name, histogram);
+    }
+
+    @Override
+    public void onHistogramRemoved(String name) {
+      remove(name);
+    }
+
+    @Override
+    public void onMeterAdded(String name, Meter meter) {
+      add(name, meter);
+    }
+
+    @Override
+    public void onMeterRemoved(String name) {
+      remove(name);
+    }
+
+    @Override
+    public void onTimerAdded(String name, Timer timer) {
+      add(name, timer);
+    }
+
+    @Override
+    public void onTimerRemoved(String name) {
+      remove(name);
+    }
+
+    private void add(String name, Metric metric) {
+      RegistryMetric registryMetric = engine
+          ? createEngineMetric(name, metric)
+          : new RegistryMetric(name, sanitize(name), null, metric);
+      // Exported names never contain spaces, so all the metrics that share one are contiguous
+      metrics.put(registryMetric.name + ' ' + name, registryMetric);
+    }
+
+    private void remove(String name) {
+      metrics.values().removeIf(registryMetric -> registryMetric.registryName.equals(name));
+    }
+  }
+
+  private static RegistryMetric createEngineMetric(String registryName, Metric metric) {
+    String[] parts = registryName.split("\\.");
+    if (parts.length % 2 != 0) {
+      return new RegistryMetric(registryName, "torodb_" + sanitize(registryName), null, metric);
+    }
+    StringBuilder name = new StringBuilder("torodb");
+    StringBuilder labels = new StringBuilder();
+    for (int i = 0; i < parts.length; i += 2) {
+      String key = parts[i];
+      if (key.equals("type") || key.startsWith("level")) {
+        name.append('_').append(parts[i + 1]);
+      } else {
+        if (labels.length() > 0) {
+          labels.append(',');
+        }
+        appendLabel(labels, sanitize(key), parts[i + 1]);
+      }
+    }
+    return new RegistryMetric(registryName, sanitize(name.toString()),
+        labels.length() == 0 ? null : labels.toString(), metric);
+  }
+
+  /**
+   * A metric of the registry with all the names it is exported with.
+   */
+  private static class RegistryMetric {
+
+    private final String registryName;
+    private final String name;
+    @Nullable
+    private final String labels;
+    private final String totalName;
+    private final String rateName;
+    private final String summaryName;
+    private final String sumName;
+    private final String countName;
+    private final Metric metric;
+
+    public RegistryMetric(String registryName, String name, @Nullable String labels,
+        Metric metric) {
+      this.registryName = registryName;
+      this.name = name;
+      this.labels = labels;
+      this.totalName = name + "_total";
+      this.rateName = name + "_rate";
+      this.summaryName = metric instanceof Timer ? name + "_seconds" : name;
+      this.sumName = summaryName + "_sum";
+      this.countName = summaryName + "_count";
+      this.metric = metric;
+    }
+  }
+
+  private static class JmxMetric {
+
+    private final ObjectName objectName;
+    private final String pool;
+    private final String[] attributes;
+
+    public JmxMetric(ObjectName objectName, String pool, String[] attributes) {
+      this.objectName = objectName;
+      this.pool = pool;
+      this.attributes = attributes;
+    }
+  }
+}
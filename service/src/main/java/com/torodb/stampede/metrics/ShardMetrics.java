@@ -0,0 +1,126 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.torodb.mongodb.repl.ConsistencyHandler;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * The replication metrics of a single shard.
+ *
+ * <p>All metrics are registered with the name {@code stampede.repl.<shardId>.<metric>}.
+ *
+ * <p>The replication metrics read the oplog applier metrics that the engine registers for the
+ * shard on the engine registry. The engine creates them when the replication of the shard starts
+ * and keeps them when the replication is restarted, so until then they report 0.
+ */
+@ThreadSafe
+public class ShardMetrics {
+
+  private final String shardId;
+  private final MetricRegistry registry;
+  private final MetricRegistry engineRegistry;
+
+  ShardMetrics(MetricRegistry registry, MetricRegistry engineRegistry, String shardId) {
+    this.shardId = shardId;
+    this.registry = registry;
+    this.engineRegistry = engineRegistry;
+  }
+
+  public String getShardId() {
+    return shardId;
+  }
+
+  /**
+   * Registers a gauge that reports whether the shard is consistent or not.
+   */
+  public void registerConsistency(ConsistencyHandler consistencyHandler) {
+    registry.register(name("consistent"), (Gauge<Boolean>) () ->
+        consistencyHandler.isRunning() && consistencyHandler.isConsistent());
+  }
+
+  /**
+   * Registers the gauges {@code lag} (the highest delay, in milliseconds, between the sync source
+   * and the applied operations of the recent batches), {@code applied} (the applied oplog
+   * operations) and {@code appliedRate} (the applied oplog operations per second, averaged over
+   * the last minute).
+   *
+   * @param unsharded true if the shard is the only one and has no {@code shards} section, as the
+   *                  engine does not register its metrics by shard then
+   */
+  public void registerReplication(boolean unsharded) {
+    String applierPrefix = unsharded ? "type.OplogApplier.level1."
+        : "type.replication.shard." + shardId + ".level2.OplogApplier.level3.";
+    EngineMetric<Histogram> maxDelay = new EngineMetric<>(applierPrefix + "maxDelay",
+        Histogram.class);
+    EngineMetric<Meter> applied = new EngineMetric<>(applierPrefix + "applied", Meter.class);
+
+    registry.register(name("lag"), (Gauge<Long>) () -> {
+      Histogram histogram = maxDelay.get();
+      return histogram != null ? histogram.getSnapshot().getMax() : 0L;
+    });
+    registry.register(name("applied"), (Gauge<Long>) () -> {
+      Meter meter = applied.get();
+      return meter != null ? meter.getCount() : 0L;
+    });
+    registry.register(name("appliedRate"), (Gauge<Double>) () -> {
+      Meter meter = applied.get();
+      return meter != null ? meter.getOneMinuteRate() : 0d;
+    });
+  }
+
+  private String name(String... names) {
+    return MetricRegistry.name("stampede.repl." + shardId, names);
+  }
+
+  /**
+   * A metric of the engine registry, that is looked up until the engine registers it.
+   */
+  private class EngineMetric<M extends Metric> {
+
+    private final String name;
+    private final Class<M> type;
+    @Nullable
+    private volatile M metric;
+
+    EngineMetric(String name, Class<M> type) {
+      this.name = name;
+      this.type = type;
+    }
+
+    @Nullable
+    M get() {
+      M result = metric;
+      if (result == null) {
+        Metric found = engineRegistry.getMetrics().get(name);
+        if (type.isInstance(found)) {
+          result = type.cast(found);
+          metric = result;
+        }
+      }
+      return result;
+    }
+  }
+}
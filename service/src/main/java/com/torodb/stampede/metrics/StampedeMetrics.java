@@ -0,0 +1,127 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.metrics;
+
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.MetricRegistry;
+import com.torodb.core.metrics.DirectoryToroMetricRegistry;
+import com.torodb.core.metrics.DisabledMetricRegistry;
+import com.torodb.core.metrics.MBeanSafeRegistry;
+import com.torodb.core.metrics.MetricsConfig;
+import com.torodb.core.metrics.ToroMetricRegistry;
+import com.torodb.core.metrics.directory.RootMetricDirectory;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * The metrics registered by ToroDB Stampede itself and by the ToroDB engine.
+ *
+ * <p>Metrics are always registered, but they are only reported through JMX when metrics are
+ * enabled on the {@link MetricsConfig}.
+ *
+ * <p>The engine registers its metrics (for example the replication lag and the applied operations
+ * of each shard) on the {@link #getToroMetricRegistry() ToroMetricRegistry} bound as essential,
+ * which is built here as the engine builds it, so they keep their JMX names, but on the
+ * {@link #getEngineRegistry() engine registry} that this class can read.
+ */
+@ThreadSafe
+public class StampedeMetrics {
+
+  public static final String JMX_DOMAIN = "com.torodb.stampede";
+
+  private final MetricRegistry registry;
+  private final MetricRegistry engineRegistry = new MetricRegistry();
+  private final boolean enabled;
+  private final ConcurrentMap<String, ShardMetrics> shardMetrics = new ConcurrentHashMap<>();
+  @Nullable
+  private JmxReporter jmxReporter;
+  @Nullable
+  private ToroMetricRegistry toroMetricRegistry;
+
+  public StampedeMetrics(MetricsConfig metricsConfig) {
+    this(new MetricRegistry(), metricsConfig);
+  }
+
+  public StampedeMetrics(MetricRegistry registry, MetricsConfig metricsConfig) {
+    this.registry = registry;
+    this.enabled = Boolean.TRUE.equals(metricsConfig.getMetricsEnabled());
+  }
+
+  public MetricRegistry getRegistry() {
+    return registry;
+  }
+
+  /**
+   * Returns the registry with the metrics of the ToroDB engine, which is empty when metrics are
+   * not enabled.
+   */
+  public MetricRegistry getEngineRegistry() {
+    return engineRegistry;
+  }
+
+  /**
+   * Returns the registry that must be bound as the essential {@link ToroMetricRegistry}, so the
+   * engine registers its metrics on the {@link #getEngineRegistry() engine registry}.
+   *
+   * <p>As the engine does, the metrics are reported through JMX under the
+   * {@code com.torodb.metrics} domain if metrics are enabled, and are not registered otherwise.
+   */
+  public synchronized ToroMetricRegistry getToroMetricRegistry() {
+    if (toroMetricRegistry == null) {
+      if (enabled) {
+        toroMetricRegistry = new DirectoryToroMetricRegistry(new RootMetricDirectory(),
+            new MBeanSafeRegistry(engineRegistry));
+      } else {
+        toroMetricRegistry = new DisabledMetricRegistry();
+      }
+    }
+    return toroMetricRegistry;
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Returns the replication metrics of the given shard, creating them if they do not exist.
+   */
+  public ShardMetrics getShardMetrics(String shardId) {
+    return shardMetrics.computeIfAbsent(shardId, id -> new ShardMetrics(registry, engineRegistry,
+        id));
+  }
+
+  public synchronized void startReporting() {
+    if (enabled && jmxReporter == null) {
+      jmxReporter = JmxReporter.forRegistry(registry)
+          .inDomain(JMX_DOMAIN)
+          .build();
+      jmxReporter.start();
+    }
+  }
+
+  public synchronized void stopReporting() {
+    if (jmxReporter != null) {
+      jmxReporter.stop();
+      jmxReporter = null;
+    }
+  }
+}
@@ -0,0 +1,109 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.threads;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A bounded thread pool whose threads are named after the pool and that reports its usage on the
+ * {@code stampede.threads.<pool>} metrics.
+ *
+ * <ul>
+ * <li>{@code queued}: tasks waiting for a thread.</li>
+ * <li>{@code active}: threads that are executing a task.</li>
+ * <li>{@code threads}: threads of the pool, idle threads are stopped after a minute.</li>
+ * <li>{@code wait}: time tasks spend waiting for a thread.</li>
+ * <li>{@code latency}: time tasks spend executing.</li>
+ * </ul>
+ *
+ * <p>When all threads are busy and the queue is full, new tasks are rejected.
+ */
+public class InstrumentedThreadPool extends ThreadPoolExecutor {
+
+  private static final long KEEP_ALIVE_SECONDS = 60;
+
+  private final String name;
+  private final Timer waitTimer;
+  private final Timer latencyTimer;
+
+  InstrumentedThreadPool(String name, int maxThreads, int queueCapacity,
+      ThreadFactory threadFactory, MetricRegistry registry) {
+    super(maxThreads, maxThreads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+        new LinkedBlockingQueue<>(queueCapacity), new NamedThreadFactory(name, threadFactory));
+    allowCoreThreadTimeOut(true);
+    this.name = name;
+
+    String prefix = MetricRegistry.name("stampede.threads", name);
+    this.waitTimer = registry.timer(MetricRegistry.name(prefix, "wait"));
+    this.latencyTimer = registry.timer(MetricRegistry.name(prefix, "latency"));
+    registry.register(MetricRegistry.name(prefix, "queued"),
+        (Gauge<Integer>) () -> getQueue().size());
+    registry.register(MetricRegistry.name(prefix, "active"), (Gauge<Integer>) this::getActiveCount);
+    registry.register(MetricRegistry.name(prefix, "threads"), (Gauge<Integer>) this::getPoolSize);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  @Override
+  public void execute(Runnable command) {
+    long queuedAt = System.nanoTime();
+    super.execute(() -> {
+      long startedAt = System.nanoTime();
+      waitTimer.update(startedAt - queuedAt, TimeUnit.NANOSECONDS);
+      try {
+        command.run();
+      } finally {
+        latencyTimer.update(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+      }
+    });
+  }
+
+  @Override
+  public String toString() {
+    return "thread pool " + name;
+  }
+
+  private static class NamedThreadFactory implements ThreadFactory {
+
+    private final String name;
+    private final ThreadFactory delegate;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    private NamedThreadFactory(String name, ThreadFactory delegate) {
+      this.name = name;
+      this.delegate = delegate;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = delegate.newThread(runnable);
+      thread.setName(name + "-" + counter.incrementAndGet());
+      return thread;
+    }
+  }
+}
@@ -0,0 +1,73 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.threads;
+
+import com.codahale.metrics.MetricRegistry;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadFactory;
+
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * The {@link InstrumentedThreadPool thread pools} used by ToroDB Stampede, by name.
+ *
+ * <p>Pools are created the first time they are requested and are shut down when this object is
+ * closed.
+ */
+@ThreadSafe
+public class ThreadPools implements AutoCloseable {
+
+  /**
+   * The pool that starts and stops {@link com.torodb.stampede.StampedeService}.
+   */
+  public static final String LIFECYCLE = "lifecycle";
+  /**
+   * The pool that starts and stops the consistency handlers of the shards.
+   */
+  public static final String CONSISTENCY = "consistency";
+
+  private static final int QUEUE_CAPACITY = 1024;
+
+  private final ThreadFactory threadFactory;
+  private final MetricRegistry registry;
+  private final ConcurrentMap<String, InstrumentedThreadPool> pools = new ConcurrentHashMap<>();
+
+  public ThreadPools(ThreadFactory threadFactory, MetricRegistry registry) {
+    this.threadFactory = threadFactory;
+    this.registry = registry;
+  }
+
+  /**
+   * Returns the pool with the given name, creating it with up to {@code maxThreads} threads if it
+   * does not exist yet.
+   */
+  public InstrumentedThreadPool getPool(String name, int maxThreads) {
+    return pools.computeIfAbsent(name, n ->
+        new InstrumentedThreadPool(n, maxThreads, QUEUE_CAPACITY, threadFactory, registry));
+  }
+
+  /**
+   * Shuts down all pools. Tasks that have already been submitted are still executed.
+   */
+  @Override
+  public void close() {
+    pools.values().forEach(InstrumentedThreadPool::shutdown);
+  }
+}
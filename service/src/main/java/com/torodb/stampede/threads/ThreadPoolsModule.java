@@ -0,0 +1,48 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.threads;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.inject.AbstractModule;
+import com.google.inject.Provides;
+import com.google.inject.Singleton;
+
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Binds the {@link ThreadPools} of ToroDB Stampede. Their threads are created by the
+ * {@link ThreadFactory} bound on the essential module.
+ */
+public class ThreadPoolsModule extends AbstractModule {
+
+  private final MetricRegistry registry;
+
+  public ThreadPoolsModule(MetricRegistry registry) {
+    this.registry = registry;
+  }
+
+  @Override
+  protected void configure() {
+  }
+
+  @Provides
+  @Singleton
+  ThreadPools createThreadPools(ThreadFactory threadFactory) {
+    return new ThreadPools(threadFactory, registry);
+  }
+}
@@ -0,0 +1,98 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.trace;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A timed operation that is recorded by a {@link StampedeTracer} when it is closed.
+ *
+ * <p>Spans created from a span share its trace id and shard, so all the stages of an operation
+ * can be related on the trace viewer even if they are executed on different threads. When the
+ * tracer is disabled spans are represented by {@link #NOOP}, which does nothing and allocates
+ * nothing.
+ */
+@NotThreadSafe
+public class Span implements AutoCloseable {
+
+  public static final Span NOOP = new Span(null, null, null, 0);
+
+  private final StampedeTracer tracer;
+  private final String name;
+  private final String shardId;
+  private final long traceId;
+  private final long threadId;
+  private final long startNanos;
+  private long endNanos = -1;
+
+  Span(StampedeTracer tracer, String name, String shardId, long traceId) {
+    this.tracer = tracer;
+    this.name = name;
+    this.shardId = shardId;
+    this.traceId = traceId;
+    this.threadId = Thread.currentThread().getId();
+    this.startNanos = System.nanoTime();
+  }
+
+  public boolean isRecorded() {
+    return tracer != null;
+  }
+
+  /**
+   * Starts a new span that belongs to the same trace than this one.
+   */
+  public Span child(String name) {
+    if (tracer == null) {
+      return NOOP;
+    }
+    return new Span(tracer, name, shardId, traceId);
+  }
+
+  String getName() {
+    return name;
+  }
+
+  String getShardId() {
+    return shardId;
+  }
+
+  long getTraceId() {
+    return traceId;
+  }
+
+  long getThreadId() {
+    return threadId;
+  }
+
+  long getStartNanos() {
+    return startNanos;
+  }
+
+  long getEndNanos() {
+    return endNanos;
+  }
+
+  @Override
+  public void close() {
+    if (tracer == null || endNanos >= 0) {
+      return;
+    }
+    endNanos = System.nanoTime();
+    tracer.record(this);
+  }
+}
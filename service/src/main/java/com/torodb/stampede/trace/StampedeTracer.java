@@ -0,0 +1,200 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.trace;
+
+import com.google.common.util.concurrent.AbstractExecutionThreadService;
+import com.torodb.core.logging.LoggerFactory;
+import org.apache.logging.log4j.Logger;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A span tracer that writes the finished spans to a file using the
+ * <a href="https://docs.google.com/document/d/1CvAClvFfyA5R-PhYUmn5OOQtYMH4h6I0nSsKchNAySU">
+ * Trace Event Format</a>, which can be opened with chrome://tracing, Perfetto or speedscope.
+ *
+ * <p>It traces the lifecycle operations of ToroDB Stampede: the startup, the reloads of the
+ * replication filters and the shutdown. The stages of the replicated batches are executed by the
+ * engine and are not traced.
+ *
+ * <p>Finished spans are handed to a bounded queue that is drained by the tracer thread, so traced
+ * threads never do IO. Spans are dropped if the queue is full.
+ */
+public class StampedeTracer extends AbstractExecutionThreadService {
+
+  private static final int QUEUE_SIZE = 8192;
+  private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+  private final Logger logger;
+  private final Path file;
+  private final ThreadFactory threadFactory;
+  private final BlockingQueue<Span> finishedSpans;
+  private final AtomicLong nextTraceId = new AtomicLong();
+  private final AtomicLong droppedSpans = new AtomicLong();
+  private final long originNanos = System.nanoTime();
+  private volatile boolean enabled;
+
+  private StampedeTracer(Path file, ThreadFactory threadFactory, LoggerFactory loggerFactory) {
+    this.logger = loggerFactory.apply(this.getClass());
+    this.file = file;
+    this.threadFactory = threadFactory;
+    this.finishedSpans = file != null ? new ArrayBlockingQueue<>(QUEUE_SIZE) : null;
+    this.enabled = file != null;
+  }
+
+  /**
+   * Creates a tracer that doesn't record any trace.
+   */
+  public static StampedeTracer disabled(ThreadFactory threadFactory,
+      LoggerFactory loggerFactory) {
+    return new StampedeTracer(null, threadFactory, loggerFactory);
+  }
+
+  /**
+   * Creates a tracer that writes the traces on the given file.
+   */
+  public static StampedeTracer toFile(Path file, ThreadFactory threadFactory,
+      LoggerFactory loggerFactory) {
+    return new StampedeTracer(file, threadFactory, loggerFactory);
+  }
+
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  public long getDroppedSpans() {
+    return droppedSpans.get();
+  }
+
+  /**
+   * Starts the root span of a trace if the tracer is enabled.
+   *
+   * <p>Every trace is recorded, so it should only be used to trace infrequent operations, like the
+   * startup.
+   */
+  public Span startTrace(String name, String shardId) {
+    if (!enabled) {
+      return Span.NOOP;
+    }
+    return new Span(this, name, shardId, nextTraceId.incrementAndGet());
+  }
+
+  void record(Span span) {
+    if (!finishedSpans.offer(span)) {
+      droppedSpans.incrementAndGet();
+    }
+  }
+
+  @Override
+  protected Executor executor() {
+    return (Runnable command) -> {
+      Thread thread = threadFactory.newThread(command);
+      thread.start();
+    };
+  }
+
+  @Override
+  protected String serviceName() {
+    return "stampede-tracer";
+  }
+
+  @Override
+  protected void run() throws Exception {
+    if (!enabled) {
+      return;
+    }
+    try (Writer writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+      StringBuilder sb = new StringBuilder(256);
+      writer.write('[');
+      boolean first = true;
+      while (isRunning() || !finishedSpans.isEmpty()) {
+        Span span = finishedSpans.poll(1, TimeUnit.SECONDS);
+        if (span == null) {
+          writer.flush();
+          continue;
+        }
+        sb.setLength(0);
+        if (!first) {
+          sb.append(",\n");
+        }
+        first = false;
+        appendEvent(sb, span);
+        writer.append(sb);
+      }
+      writer.write("]\n");
+    } catch (IOException ex) {
+      enabled = false;
+      logger.warn("Error while writing the trace file " + file + ". Tracing has been disabled",
+          ex);
+    }
+    if (droppedSpans.get() > 0) {
+      logger.info("{} spans were dropped because the trace file could not be written fast enough",
+          droppedSpans.get());
+    }
+  }
+
+  @Override
+  protected void triggerShutdown() {
+    enabled = false;
+  }
+
+  private void appendEvent(StringBuilder sb, Span span) {
+    sb.append("{\"name\":\"");
+    appendEscaped(sb, span.getName());
+    sb.append("\",\"cat\":\"stampede\",\"ph\":\"X\",\"pid\":1,\"tid\":")
+        .append(span.getThreadId())
+        .append(",\"ts\":");
+    appendMicros(sb, span.getStartNanos() - originNanos);
+    sb.append(",\"dur\":");
+    appendMicros(sb, span.getEndNanos() - span.getStartNanos());
+    sb.append(",\"args\":{\"trace\":").append(span.getTraceId());
+    if (span.getShardId() != null) {
+      sb.append(",\"shard\":\"");
+      appendEscaped(sb, span.getShardId());
+      sb.append('"');
+    }
+    sb.append("}}");
+  }
+
+  private static void appendMicros(StringBuilder sb, long nanos) {
+    sb.append(nanos / 1000).append('.').append((nanos % 1000) / 100);
+  }
+
+  private static void appendEscaped(StringBuilder sb, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      if (c == '"' || c == '\\') {
+        sb.append('\\').append(c);
+      } else if (c < ' ') {
+        sb.append("\\u00").append(HEX_DIGITS[c >> 4]).append(HEX_DIGITS[c & 0xF]);
+      } else {
+        sb.append(c);
+      }
+    }
+  }
+}
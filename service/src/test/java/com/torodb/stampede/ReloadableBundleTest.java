@@ -0,0 +1,114 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.AbstractIdleService;
+import com.google.common.util.concurrent.Service;
+import com.torodb.mongodb.repl.filters.ReplicationFilters;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ReloadableBundleTest {
+
+  private final List<String> events = new ArrayList<>();
+  private final List<FakeBundle> created = new ArrayList<>();
+  private boolean failNextStart;
+  private ReloadableBundle<FakeBundle> reloadableBundle;
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @Before
+  public void setUp() {
+    reloadableBundle = new ReloadableBundle<>(filters -> {
+      FakeBundle bundle = new FakeBundle("bundle" + created.size(), failNextStart);
+      failNextStart = false;
+      created.add(bundle);
+      return bundle;
+    });
+  }
+
+  @Test
+  public void testReload() {
+    ReplicationFilters filters = ReplicationFilters.allowAll();
+    FakeBundle first = reloadableBundle.start(filters);
+
+    FakeBundle second = reloadableBundle.reload(filters, () -> events.add("beforeStart"));
+
+    Assert.assertEquals(Service.State.TERMINATED, first.state());
+    Assert.assertEquals(Service.State.RUNNING, second.state());
+    Assert.assertSame(second, reloadableBundle.get().get());
+    Assert.assertEquals("The old bundle must be stopped before the new one is started",
+        ImmutableList.of("bundle0 up", "bundle0 down", "beforeStart", "bundle1 up"), events);
+
+    reloadableBundle.stop();
+    Assert.assertEquals(Service.State.TERMINATED, second.state());
+    Assert.assertFalse(reloadableBundle.get().isPresent());
+  }
+
+  @Test
+  public void testReloadFailure() {
+    ReplicationFilters filters = ReplicationFilters.allowAll();
+    reloadableBundle.start(filters);
+    failNextStart = true;
+
+    try {
+      reloadableBundle.reload(filters, () -> { });
+      Assert.fail("A bundle that fails to start must fail the reload");
+    } catch (IllegalStateException expected) {
+      // The reload fails
+    }
+    Assert.assertEquals(Service.State.FAILED, created.get(1).state());
+
+    // A failed bundle can still be stopped
+    reloadableBundle.stop();
+    Assert.assertFalse(reloadableBundle.get().isPresent());
+  }
+
+  @Test(expected = IllegalStateException.class)
+  public void testReloadBeforeStart() {
+    reloadableBundle.reload(ReplicationFilters.allowAll(), () -> { });
+  }
+
+  private class FakeBundle extends AbstractIdleService {
+
+    private final String name;
+    private final boolean failOnStart;
+
+    private FakeBundle(String name, boolean failOnStart) {
+      this.name = name;
+      this.failOnStart = failOnStart;
+    }
+
+    @Override
+    protected void startUp() throws Exception {
+      if (failOnStart) {
+        throw new IllegalStateException(name + " failed");
+      }
+      events.add(name + " up");
+    }
+
+    @Override
+    protected void shutDown() throws Exception {
+      events.add(name + " down");
+    }
+  }
+}
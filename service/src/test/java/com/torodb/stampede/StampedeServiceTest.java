@@ -34,6 +34,9 @@ import com.torodb.mongodb.repl.oplogreplier.offheapbuffer.OffHeapBufferConfig;
 import com.torodb.mongodb.repl.oplogreplier.offheapbuffer.BufferRollCycle;
 import com.torodb.mongodb.repl.sharding.MongoDbShardingConfig;
 import com.torodb.mongowp.client.wrapper.MongoClientConfigurationProperties;
+import com.torodb.stampede.metrics.StampedeMetrics;
+import com.torodb.stampede.threads.ThreadPoolsModule;
+import com.torodb.stampede.trace.StampedeTracer;
 import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
@@ -41,6 +44,7 @@ import org.junit.Test;
 import java.time.Clock;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Executors;
 
 public class StampedeServiceTest {
 
@@ -49,13 +53,17 @@ public class StampedeServiceTest {
   @SuppressWarnings("checkstyle:JavadocMethod")
   @Before
   public void setUp() {
+    StampedeMetrics metrics = new StampedeMetrics(() -> true);
     stampedeConfig = StampedeConfig.createShardingConfig(
-        createEssentialInjector(),
+        createEssentialInjector(metrics),
         this::createBackendBundle,
         ReplicationFilters.allowAll(),
         createShards(1),
         DefaultLoggerFactory.getInstance(),
-        createOffHeapBufferConfig()
+        createOffHeapBufferConfig(),
+        metrics,
+        StampedeTracer.disabled(Executors.defaultThreadFactory(),
+            DefaultLoggerFactory.getInstance())
     );
   }
 
@@ -76,11 +84,13 @@ public class StampedeServiceTest {
     stampedeService.awaitTerminated();
   }
 
-  private Injector createEssentialInjector() {
-    return Guice.createInjector(new EssentialModule(
-        DefaultLoggerFactory.getInstance(),
-        () -> true,
-        Clock.systemUTC())
+  private Injector createEssentialInjector(StampedeMetrics metrics) {
+    return Guice.createInjector(
+        new EssentialModule(
+            DefaultLoggerFactory.getInstance(),
+            () -> true,
+            Clock.systemUTC()),
+        new ThreadPoolsModule(metrics.getRegistry())
     );
   }
 
@@ -0,0 +1,194 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.torodb.core.metrics.ToroMetricRegistry;
+import com.torodb.mongodb.repl.oplogreplier.OplogApplierMetrics;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.management.MBeanServer;
+import javax.management.MBeanServerFactory;
+import javax.management.ObjectName;
+
+public class PrometheusExporterTest {
+
+  private MetricRegistry registry;
+  private StampedeMetrics metrics;
+  private MBeanServer mbeanServer;
+  private PrometheusExporter exporter;
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @Before
+  public void setUp() {
+    metrics = new StampedeMetrics(() -> true);
+    registry = metrics.getRegistry();
+    mbeanServer = MBeanServerFactory.newMBeanServer();
+    exporter = new PrometheusExporter(registry, metrics.getEngineRegistry(), mbeanServer);
+  }
+
+  @SuppressWarnings("checkstyle:JavadocMethod")
+  @After
+  public void tearDown() {
+    exporter.close();
+  }
+
+  @Test
+  public void testGauges() {
+    registry.register("stampede.repl.s0.consistent", (Gauge<Boolean>) () -> true);
+    registry.register("stampede.threads.lifecycle.queued", (Gauge<Integer>) () -> 3);
+    registry.register("stampede.text", (Gauge<String>) () -> "ignored");
+
+    List<String> lines = write();
+
+    assertSample(lines, "gauge", "stampede_repl_s0_consistent", "1");
+    assertSample(lines, "gauge", "stampede_threads_lifecycle_queued", "3");
+    Assert.assertFalse(lines.stream().anyMatch(line -> line.contains("stampede_text")));
+  }
+
+  @Test
+  public void testCounter() {
+    registry.counter("stampede.count").inc(5);
+
+    assertSample(write(), "gauge", "stampede_count", "5");
+  }
+
+  @Test
+  public void testMeter() {
+    registry.meter("stampede.repl.s0.ops").mark(7);
+
+    List<String> lines = write();
+
+    assertSample(lines, "counter", "stampede_repl_s0_ops_total", "7");
+    Assert.assertTrue(lines.contains("# TYPE stampede_repl_s0_ops_rate gauge"));
+    Assert.assertTrue(lines.stream()
+        .anyMatch(line -> line.startsWith("stampede_repl_s0_ops_rate{window=\"1m\"} ")));
+  }
+
+  @Test
+  public void testTimer() {
+    registry.timer("stampede.threads.lifecycle.wait").update(2, TimeUnit.SECONDS);
+    registry.timer("stampede.threads.lifecycle.wait").update(4, TimeUnit.SECONDS);
+
+    List<String> lines = write();
+
+    Assert.assertTrue(lines.contains("# TYPE stampede_threads_lifecycle_wait_seconds summary"));
+    Assert.assertTrue(lines.contains(
+        "stampede_threads_lifecycle_wait_seconds{quantile=\"0.999\"} 4"));
+    Assert.assertTrue(lines.contains("stampede_threads_lifecycle_wait_seconds_sum 6"));
+    Assert.assertTrue(lines.contains("stampede_threads_lifecycle_wait_seconds_count 2"));
+  }
+
+  @Test
+  public void testHistogram() {
+    registry.histogram("stampede.size").update(10);
+    registry.histogram("stampede.size").update(30);
+
+    List<String> lines = write();
+
+    Assert.assertTrue(lines.contains("# TYPE stampede_size summary"));
+    Assert.assertTrue(lines.contains("stampede_size_sum 40"));
+    Assert.assertTrue(lines.contains("stampede_size_count 2"));
+  }
+
+  @Test
+  public void testRemovedMetric() {
+    registry.counter("stampede.count");
+    registry.remove("stampede.count");
+
+    Assert.assertFalse(write().stream().anyMatch(line -> line.contains("stampede_count")));
+  }
+
+  @Test
+  public void testFlexyPoolRegisteredLater() throws Exception {
+    write();
+    mbeanServer.registerMBean(new Pool(), new ObjectName(
+        "com.vladmihalcea.flexypool.metric.codahale.JmxMetricReporter.session:name=maxPoolSize"));
+
+    List<String> lines = write();
+
+    Assert.assertTrue(lines.contains("# TYPE flexypool_maxPoolSize gauge"));
+    Assert.assertTrue(lines.contains(
+        "flexypool_maxPoolSize{pool=\"session\",stat=\"Count\"} 12"));
+  }
+
+  @Test
+  public void testEngineMetrics() {
+    ToroMetricRegistry replRegistry = metrics.getToroMetricRegistry()
+        .createSubRegistry("replication");
+    new OplogApplierMetrics(replRegistry.createSubRegistry("shard", "s1")).getApplied().mark(3);
+    new OplogApplierMetrics(replRegistry.createSubRegistry("shard", "s2")).getApplied().mark(4);
+
+    List<String> lines = write();
+
+    int typeIndex = lines.indexOf("# TYPE torodb_replication_OplogApplier_applied_total counter");
+    Assert.assertTrue(typeIndex >= 0);
+    Assert.assertEquals("torodb_replication_OplogApplier_applied_total{shard=\"s1\"} 3",
+        lines.get(typeIndex + 1));
+    Assert.assertEquals("torodb_replication_OplogApplier_applied_total{shard=\"s2\"} 4",
+        lines.get(typeIndex + 2));
+    Assert.assertEquals(1, lines.stream()
+        .filter(line -> line.equals("# TYPE torodb_replication_OplogApplier_applied_rate gauge"))
+        .count());
+    Assert.assertTrue(lines.stream().anyMatch(line -> line.startsWith(
+        "torodb_replication_OplogApplier_applied_rate{shard=\"s2\",window=\"1m\"} ")));
+  }
+
+  @Test
+  public void testNameSanitization() {
+    StringBuilder out = new StringBuilder();
+    registry.counter("1st-metric");
+
+    exporter.write(out);
+
+    Assert.assertTrue(out.toString().contains("\n_st_metric 0\n"));
+  }
+
+  private List<String> write() {
+    StringBuilder out = new StringBuilder();
+    exporter.write(out);
+    return Arrays.asList(out.toString().split("\n"));
+  }
+
+  private static void assertSample(List<String> lines, String type, String name, String value) {
+    int typeIndex = lines.indexOf("# TYPE " + name + " " + type);
+    Assert.assertTrue("No type line for " + name, typeIndex >= 0);
+    Assert.assertEquals(name + " " + value, lines.get(typeIndex + 1));
+  }
+
+  public interface PoolMBean {
+
+    long getCount();
+  }
+
+  public static class Pool implements PoolMBean {
+
+    @Override
+    public long getCount() {
+      return 12;
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * ToroDB Stampede
+ * Copyright © 2016 8Kdata Technology (www.8kdata.com)
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.torodb.stampede.metrics;
+
+import com.codahale.metrics.Gauge;
+import com.torodb.core.metrics.ToroMetricRegistry;
+import com.torodb.mongodb.repl.oplogreplier.OplogApplierMetrics;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class ShardMetricsTest {
+
+  @Test
+  public void testShardedReplication() {
+    StampedeMetrics metrics = new StampedeMetrics(() -> true);
+    metrics.getShardMetrics("shard1").registerReplication(false);
+
+    Assert.assertEquals(0L, getGauge(metrics, "stampede.repl.shard1.applied"));
+    Assert.assertEquals(0L, getGauge(metrics, "stampede.repl.shard1.lag"));
+
+    // As the engine registers the metrics of a shard when its replication starts
+    ToroMetricRegistry shardRegistry = metrics.getToroMetricRegistry()
+        .createSubRegistry("replication")
+        .createSubRegistry("shard", "shard1");
+    OplogApplierMetrics applierMetrics = new OplogApplierMetrics(shardRegistry);
+    applierMetrics.getApplied().mark(5);
+    applierMetrics.getMaxDelay().update(1200);
+    applierMetrics.getMaxDelay().update(300);
+
+    Assert.assertEquals(5L, getGauge(metrics, "stampede.repl.shard1.applied"));
+    // The engine histograms keep approximated values
+    Assert.assertEquals(1200, (Long) getGauge(metrics, "stampede.repl.shard1.lag"), 12);
+  }
+
+  @Test
+  public void testUnshardedReplication() {
+    StampedeMetrics metrics = new StampedeMetrics(() -> true);
+    metrics.getShardMetrics("unsharded").registerReplication(true);
+
+    OplogApplierMetrics applierMetrics = new OplogApplierMetrics(
+        metrics.getToroMetricRegistry());
+    applierMetrics.getApplied().mark(7);
+
+    Assert.assertEquals(7L, getGauge(metrics, "stampede.repl.unsharded.applied"));
+  }
+
+  @Test
+  public void testDisabledMetrics() {
+    StampedeMetrics metrics = new StampedeMetrics(() -> false);
+    metrics.getShardMetrics("unsharded").registerReplication(true);
+
+    new OplogApplierMetrics(metrics.getToroMetricRegistry()).getApplied().mark(7);
+
+    Assert.assertTrue(metrics.getEngineRegistry().getMetrics().isEmpty());
+    Assert.assertEquals(0L, getGauge(metrics, "stampede.repl.unsharded.applied"));
+  }
+
+  private static Object getGauge(StampedeMetrics metrics, String name) {
+    Gauge<?> gauge = metrics.getRegistry().getGauges().get(name);
+    Assert.assertNotNull("Gauge " + name + " not registered", gauge);
+    return gauge.getValue();
+  }
+}